@@ -0,0 +1,80 @@
+package com.example.trains;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Loading a network from text and from a binary snapshot, and DOT export.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LoadBenchmark {
+
+    @Param({"GRID", "GEOMETRIC", "LOCAL", "UNIFORM", "SCALE_FREE"})
+    public Topology topology;
+
+    @Param({"1000", "100000", "1000000"})
+    public int vertices;
+
+    private Path text;
+    private Path snapshot;
+    private Graph graph;
+    private PrintStream sink;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        this.text = Files.createTempFile("network", ".txt");
+        this.snapshot = Files.createTempFile("network", ".bin");
+        this.topology.write(this.vertices, this.text);
+        this.graph = new Graph();
+        this.graph.readFrom(this.text.toString());
+        this.graph.writeSnapshot(this.snapshot.toString());
+        this.sink = new PrintStream(OutputStream.nullOutputStream());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(this.text);
+        Files.deleteIfExists(this.snapshot);
+    }
+
+    @Benchmark
+    public Graph readFrom() {
+        Graph graph = new Graph();
+        graph.readFrom(this.text.toString());
+        return graph;
+    }
+
+    @Benchmark
+    public Graph readSnapshot() {
+        Graph graph = new Graph();
+        graph.readSnapshot(this.snapshot.toString());
+        return graph;
+    }
+
+    @Benchmark
+    public void toDotFormat() {
+        this.graph.toDotFormat(this.sink);
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.trains;
+
+import java.util.SplittableRandom;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * A generated network shared by all threads of a trial, plus a fixed cycle of query pairs.
+ */
+@State(Scope.Benchmark)
+public class NetworkState {
+
+    private static final int QUERIES = 1024;
+
+    @Param({"GRID", "GEOMETRIC", "LOCAL", "UNIFORM", "SCALE_FREE"})
+    public Topology topology;
+
+    @Param({"1000", "100000", "1000000"})
+    public int vertices;
+
+    Graph graph;
+    CsrGraph csr;
+    int[] sources;
+    int[] targets;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        this.graph = this.topology.build(this.vertices);
+        this.csr = this.graph.getCsr();
+        SplittableRandom random = new SplittableRandom(7L);
+        this.sources = random.ints(QUERIES, 0, this.vertices).toArray();
+        this.targets = random.ints(QUERIES, 0, this.vertices).toArray();
+    }
+
+    int nextQuery() {
+        this.next = (this.next + 1) & (QUERIES - 1);
+        return this.next;
+    }
+}
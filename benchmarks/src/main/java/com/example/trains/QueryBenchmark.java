@@ -0,0 +1,112 @@
+package com.example.trains;
+
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Single-source and point-to-point queries over every engine. Preprocessed structures live in their
+ * own states so they are only built for the benchmarks that use them.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class QueryBenchmark {
+
+    private static final int BATCH = 16;
+
+    @State(Scope.Benchmark)
+    public static class LandmarkState {
+        Landmarks landmarks;
+
+        @Setup(Level.Trial)
+        public void setUp(NetworkState network) {
+            this.landmarks = Landmarks.select(network.csr, 16);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class HierarchyState {
+        ContractionHierarchy hierarchy;
+
+        @Setup(Level.Trial)
+        public void setUp(NetworkState network) {
+            this.hierarchy = ContractionHierarchy.build(network.csr);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class OverlayState {
+        @Param({"32:256:2048:16384", "64:1024:16384"})
+        public String maxCellSizes;
+
+        CellOverlay overlay;
+
+        @Setup(Level.Trial)
+        public void setUp(NetworkState network) {
+            int[] sizes = Arrays.stream(this.maxCellSizes.split(":")).mapToInt(Integer::parseInt).toArray();
+            this.overlay = CellOverlay.build(network.csr, sizes);
+        }
+    }
+
+    @Benchmark
+    public Graph distancesFrom(NetworkState network) {
+        int query = network.nextQuery();
+        network.graph.distancesFrom(network.graph.getVertices()[network.sources[query]]);
+        return network.graph;
+    }
+
+    @Benchmark
+    public ShortestPathTree shortestPaths(NetworkState network) {
+        return network.csr.shortestPaths(network.sources[network.nextQuery()]);
+    }
+
+    @Benchmark
+    public DistanceMatrix batchDistances(NetworkState network) {
+        return network.csr.distancesFrom(Arrays.copyOf(network.sources, BATCH), false);
+    }
+
+    @Benchmark
+    public Optional<Route> route(NetworkState network) {
+        int query = network.nextQuery();
+        return network.csr.route(network.sources[query], network.targets[query]);
+    }
+
+    @Benchmark
+    public Optional<Route> bidirectionalRoute(NetworkState network) {
+        int query = network.nextQuery();
+        return network.csr.bidirectionalRoute(network.sources[query], network.targets[query]);
+    }
+
+    @Benchmark
+    public Optional<Route> landmarkRoute(NetworkState network, LandmarkState state) {
+        int query = network.nextQuery();
+        return network.csr.route(network.sources[query], network.targets[query], state.landmarks);
+    }
+
+    @Benchmark
+    public Optional<Route> hierarchyRoute(NetworkState network, HierarchyState state) {
+        int query = network.nextQuery();
+        return state.hierarchy.route(network.sources[query], network.targets[query]);
+    }
+
+    @Benchmark
+    public Optional<Route> overlayRoute(NetworkState network, OverlayState state) {
+        int query = network.nextQuery();
+        return state.overlay.route(network.sources[query], network.targets[query]);
+    }
+}
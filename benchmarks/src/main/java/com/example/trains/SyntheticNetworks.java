@@ -0,0 +1,72 @@
+package com.example.trains;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Planar-like networks that {@link NetworkGenerator} cannot produce, emitted edge by edge.
+ */
+final class SyntheticNetworks {
+
+    private static final double GEOMETRIC_DEGREE = 6;
+
+    private SyntheticNetworks() {}
+
+    // Square lattice, both directions of every link with independent costs.
+    static void grid(int vertices, SplittableRandom random, NetworkGenerator.EdgeSink sink) throws IOException {
+        int side = (int) Math.ceil(Math.sqrt(vertices));
+        for (int vertex = 0; vertex < vertices; vertex++) {
+            int column = vertex % side;
+            if (column + 1 < side && vertex + 1 < vertices) {
+                sink.edge(vertex, vertex + 1, random.nextDouble(0.1, 2.0));
+                sink.edge(vertex + 1, vertex, random.nextDouble(0.1, 2.0));
+            }
+            if (vertex + side < vertices) {
+                sink.edge(vertex, vertex + side, random.nextDouble(0.1, 2.0));
+                sink.edge(vertex + side, vertex, random.nextDouble(0.1, 2.0));
+            }
+        }
+    }
+
+    // Points in the unit square linked when closer than the radius giving the target mean degree.
+    static void geometric(int vertices, SplittableRandom random, NetworkGenerator.EdgeSink sink)
+            throws IOException {
+        double radius = Math.sqrt(GEOMETRIC_DEGREE / (Math.PI * vertices));
+        int cells = Math.max(1, (int) (1 / radius));
+        double[] x = new double[vertices];
+        double[] y = new double[vertices];
+        int[] cellStart = new int[cells * cells + 1];
+        int[] cellOf = new int[vertices];
+        for (int i = 0; i < vertices; i++) {
+            x[i] = random.nextDouble();
+            y[i] = random.nextDouble();
+            cellOf[i] = Math.min(cells - 1, (int) (y[i] * cells)) * cells + Math.min(cells - 1, (int) (x[i] * cells));
+            cellStart[cellOf[i] + 1]++;
+        }
+        for (int cell = 0; cell < cells * cells; cell++) {
+            cellStart[cell + 1] += cellStart[cell];
+        }
+        int[] members = new int[vertices];
+        int[] fill = Arrays.copyOf(cellStart, cells * cells);
+        for (int i = 0; i < vertices; i++) {
+            members[fill[cellOf[i]]++] = i;
+        }
+        for (int i = 0; i < vertices; i++) {
+            int row = cellOf[i] / cells;
+            int column = cellOf[i] % cells;
+            for (int r = Math.max(0, row - 1); r <= Math.min(cells - 1, row + 1); r++) {
+                for (int c = Math.max(0, column - 1); c <= Math.min(cells - 1, column + 1); c++) {
+                    int cell = r * cells + c;
+                    for (int k = cellStart[cell]; k < cellStart[cell + 1]; k++) {
+                        int j = members[k];
+                        double distance = Math.hypot(x[i] - x[j], y[i] - y[j]);
+                        if (j != i && distance < radius) {
+                            sink.edge(i, j, distance * 1000 * random.nextDouble(1.0, 1.2));
+                        }
+                    }
+                }
+            }
+        }
+    }
+}
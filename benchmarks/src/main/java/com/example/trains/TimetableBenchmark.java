@@ -0,0 +1,84 @@
+package com.example.trains;
+
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Earliest-arrival queries over a timetable with an hourly service on every edge of a generated grid,
+ * costs being travel times in hours.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TimetableBenchmark {
+
+    private static final int QUERIES = 1024;
+    private static final int FIRST_HOUR = 6;
+    private static final int LAST_HOUR = 22;
+
+    @Param({"1000", "10000", "100000"})
+    public int vertices;
+
+    Timetable timetable;
+    int[] sources;
+    int[] targets;
+    int[] departures;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        CsrGraph csr = Topology.GRID.build(this.vertices).getCsr();
+        int count = csr.edgeCount() * (LAST_HOUR - FIRST_HOUR + 1);
+        int[] tripOf = new int[count];
+        int[] from = new int[count];
+        int[] to = new int[count];
+        int[] departures = new int[count];
+        int[] arrivals = new int[count];
+        int c = 0;
+        for (int vertex = 0; vertex < csr.vertexCount(); vertex++) {
+            for (int edge = csr.firstEdge(vertex); edge < csr.lastEdge(vertex); edge++) {
+                for (int hour = FIRST_HOUR; hour <= LAST_HOUR; hour++) {
+                    tripOf[c] = c;
+                    from[c] = vertex;
+                    to[c] = csr.target(edge);
+                    departures[c] = hour * 3600;
+                    arrivals[c] = departures[c] + (int) Math.round(csr.cost(edge) * 3600);
+                    c++;
+                }
+            }
+        }
+        String[] stations = new String[csr.vertexCount()];
+        Arrays.setAll(stations, csr::name);
+        String[] trips = new String[count];
+        Arrays.setAll(trips, Integer::toString);
+        this.timetable = new Timetable(stations, trips, tripOf, from, to, departures, arrivals);
+        SplittableRandom random = new SplittableRandom(7L);
+        this.sources = random.ints(QUERIES, 0, this.vertices).toArray();
+        this.targets = random.ints(QUERIES, 0, this.vertices).toArray();
+        this.departures = random.ints(QUERIES, FIRST_HOUR * 3600, (FIRST_HOUR + 4) * 3600).toArray();
+    }
+
+    @Benchmark
+    public Optional<Timetable.Journey> earliestArrival() {
+        this.next = (this.next + 1) & (QUERIES - 1);
+        return this.timetable.earliestArrival(this.sources[this.next], this.targets[this.next],
+                this.departures[this.next], 300);
+    }
+}
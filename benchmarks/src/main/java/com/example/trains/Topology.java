@@ -0,0 +1,81 @@
+package com.example.trains;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+
+/**
+ * Benchmark networks: planar-like ones from {@link SyntheticNetworks}, and fixed {@link NetworkGenerator}
+ * configurations.
+ */
+public enum Topology {
+
+    /** Square lattice, both directions of every link with independent costs. */
+    GRID,
+    /** Points in the unit square linked to their neighbours within a radius, costs near the distance. */
+    GEOMETRIC,
+    /** Every station linked both ways to a few others within eight indices, like a line of towns. */
+    LOCAL("degrees=fixed", "degree=2", "window=8", "symmetry=1"),
+    /** Uniform out-degrees with targets anywhere in the network. */
+    UNIFORM("degrees=uniform", "degree=1:4", "window=0", "symmetry=0.5"),
+    /** Power-law out-degrees, so a few hubs carry most of the links. */
+    SCALE_FREE("degrees=power_law", "degree=2:1000", "exponent=2.5", "window=0", "symmetry=1");
+
+    private static final long SEED = 42L;
+
+    private final String[] options;
+
+    Topology(String... options) {
+        this.options = options;
+    }
+
+    Graph build(int vertices) {
+        Graph graph = new Graph();
+        for (int i = 0; i < vertices; i++) {
+            graph.addVertex("Station" + i);
+        }
+        try {
+            this.generate(vertices, graph::addEdge);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        graph.freeze();
+        return graph;
+    }
+
+    void write(int vertices, Path file) throws IOException {
+        if (this.options.length > 0) {
+            this.generator(vertices).writeTo(file);
+            return;
+        }
+        try (BufferedWriter writer = Files.newBufferedWriter(file)) {
+            for (int i = 0; i < vertices; i++) {
+                writer.write("Station" + i);
+                writer.newLine();
+            }
+            writer.newLine();
+            this.generate(vertices, (source, target, cost) -> {
+                writer.write(source + ", " + target + ", " + cost);
+                writer.newLine();
+            });
+        }
+    }
+
+    private void generate(int vertices, NetworkGenerator.EdgeSink sink) throws IOException {
+        switch (this) {
+            case GRID -> SyntheticNetworks.grid(vertices, new SplittableRandom(SEED), sink);
+            case GEOMETRIC -> SyntheticNetworks.geometric(vertices, new SplittableRandom(SEED), sink);
+            default -> this.generator(vertices).generate(sink);
+        }
+    }
+
+    private NetworkGenerator generator(int vertices) {
+        String[] options = new String[this.options.length + 2];
+        System.arraycopy(this.options, 0, options, 0, this.options.length);
+        options[this.options.length] = "vertices=" + vertices;
+        options[this.options.length + 1] = "seed=" + SEED;
+        return NetworkGenerator.parse(options);
+    }
+}
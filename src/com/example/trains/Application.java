@@ -0,0 +1,87 @@
+package com.example.trains;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+public class Application {
+    public static void main(String[] args) {
+        if (args.length > 1 && args[0].equals("--generate")) {
+            NetworkGenerator.parse(Arrays.copyOfRange(args, 2, args.length)).writeTo(Path.of(args[1]));
+            return;
+        }
+        String dot = null;
+        boolean csv = false;
+        Integer port = null;
+        boolean stats = false;
+        String start = null;
+        for (String arg : args) {
+            if (arg.equals("--dot")) {
+                dot = "graph";
+            } else if (arg.startsWith("--dot=")) {
+                dot = arg.substring("--dot=".length());
+            } else if (arg.equals("--format=csv") || arg.equals("--format=text")) {
+                csv = arg.endsWith("csv");
+            } else if (arg.equals("--stats")) {
+                stats = true;
+            } else if (arg.equals("--serve")) {
+                port = -1;
+            } else if (arg.startsWith("--serve=")) {
+                port = Integer.parseInt(arg.substring("--serve=".length()));
+            } else if (arg.startsWith("--")) {
+                throw new IllegalArgumentException("Unknown option %s".formatted(arg));
+            } else {
+                start = arg;
+            }
+        }
+        QueryMetrics.setEnabled(stats);
+        if (port != null) {
+            serve(port);
+        } else {
+            run(start, dot, csv);
+        }
+        if (stats) {
+            QueryMetrics.print(System.err);
+        }
+    }
+
+    private static void run(String start, String dot, boolean csv) {
+        Graph graph = new Graph();
+        graph.readFrom("input.txt");
+        if (dot != null) {
+            graph.toDotFormat(dot);
+        }
+        if (start == null) {
+            if (csv) {
+                graph.printEdgesCsv(System.out);
+            } else {
+                graph.printEdges(System.out);
+            }
+        } else {
+            graph.distancesFrom(start);
+            if (csv) {
+                graph.printDistancesCsv(System.out);
+            } else {
+                System.out.printf("Calculating distances from %s.\n", start);
+                graph.printDistances(System.out);
+            }
+        }
+    }
+
+    // Without a port, queries are read from the standard input.
+    private static void serve(int port) {
+        try (QueryServer server = new QueryServer(Path.of("input.txt"))) {
+            server.watch();
+            if (port < 0) {
+                server.serve(System.in, System.out);
+            } else {
+                System.out.printf("Listening on port %d.%n", server.start(port));
+                server.join();
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,472 @@
+package com.example.trains;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+/**
+ * Nested partitions of a {@link CsrGraph} into cells of bounded size, level 1 being the finest. For
+ * each cell the overlay keeps the distances inside it between its boundary vertices, those with an edge
+ * to or from another cell of the same level. Queries search the source and target cells edge by edge
+ * and cross every other cell through the clique of the coarsest level that keeps the source and target
+ * outside it, so the interior of the cells they only pass through is never visited.
+ * <p>
+ * Cliques are computed from the costs of the graph when built; the cliques of a level are computed
+ * from those of the level below. After the costs of edges leaving a vertex change, only the cells
+ * containing it need {@link #recompute(int)}.
+ */
+public final class CellOverlay {
+
+    private static final int MAX_ROUNDS = 16;
+    private static final long SEED = 42L;
+
+    private final CsrGraph graph;
+    private final Layer[] layers;
+
+    private CellOverlay(CsrGraph graph, Layer[] layers) {
+        this.graph = graph;
+        this.layers = layers;
+    }
+
+    /**
+     * Partitions the graph by size-bounded label propagation, once per level with the given maximum
+     * number of vertices per cell, each level grouping whole cells of the one below. The cliques of
+     * every cell of a level are then computed in parallel, from the finest level up.
+     */
+    public static CellOverlay build(CsrGraph graph, int... maxCellSizes) {
+        if (maxCellSizes.length == 0) {
+            throw new IllegalArgumentException("At least one level is needed");
+        }
+        for (int i = 0; i < maxCellSizes.length; i++) {
+            if (maxCellSizes[i] < 1 || (i > 0 && maxCellSizes[i] <= maxCellSizes[i - 1])) {
+                throw new IllegalArgumentException("Cell sizes must be positive and increasing");
+            }
+        }
+        int size = graph.vertexCount();
+        CsrGraph reverse = graph.reverse();
+        SplittableRandom random = new SplittableRandom(SEED);
+        Level level = Level.of(graph, reverse);
+        int[] nodes = new int[size];
+        Arrays.setAll(nodes, vertex -> vertex);
+        Layer[] layers = new Layer[maxCellSizes.length];
+        for (int i = 0; i < layers.length; i++) {
+            int[] labels = partition(level, maxCellSizes[i], random);
+            int count = 0;
+            for (int label : labels) {
+                count = Math.max(count, label + 1);
+            }
+            int[] cells = new int[size];
+            for (int vertex = 0; vertex < size; vertex++) {
+                cells[vertex] = labels[nodes[vertex]];
+            }
+            layers[i] = new Layer(graph, reverse, cells, count);
+            level = level.contract(labels, count);
+            nodes = cells;
+        }
+        CellOverlay overlay = new CellOverlay(graph, layers);
+        for (int i = 0; i < layers.length; i++) {
+            int layer = i + 1;
+            IntStream.range(0, layers[i].cliques.length).parallel()
+                    .forEach(cell -> layers[layer - 1].cliques[cell] = overlay.clique(layer, cell, false));
+        }
+        return overlay;
+    }
+
+    public int levelCount() {
+        return this.layers.length;
+    }
+
+    public int cellCount(int level) {
+        return this.layers[level - 1].cliques.length;
+    }
+
+    public int cell(int level, int vertex) {
+        return this.layers[level - 1].cells[vertex];
+    }
+
+    public int boundaryCount(int level) {
+        return this.layers[level - 1].boundary.length;
+    }
+
+    /**
+     * Recomputes the cliques of the cells containing the vertex, after costs of edges leaving it
+     * changed. Each clique is computed one boundary vertex per task, from the finest level up.
+     */
+    public void recompute(int vertex) {
+        for (int level = 1; level <= this.layers.length; level++) {
+            Layer layer = this.layers[level - 1];
+            layer.cliques[layer.cells[vertex]] = this.clique(level, layer.cells[vertex], true);
+        }
+    }
+
+    /**
+     * Dijkstra that relaxes, from each vertex, either its edges when it shares a cell of level 1 with
+     * the source or target, or the clique and outgoing edges of its cell of the coarsest level that
+     * contains neither. Clique edges of the resulting path are expanded back into stations.
+     */
+    public Optional<Route> route(int source, int target) {
+        long start = QueryMetrics.start();
+        SearchSpace space = SearchSpace.acquire(this.graph.vertexCount());
+        IndexedHeap heap = space.heap;
+        space.update(source, 0, -1);
+        heap.push(source, 0);
+        int settled = 0;
+        long relaxed = 0;
+        boolean found = false;
+        while (!heap.isEmpty()) {
+            int current = heap.pop();
+            settled++;
+            if (current == target) {
+                found = true;
+                break;
+            }
+            int level = this.queryLevel(current, source, target);
+            relaxed += this.relax(current, level, null, -1, space);
+        }
+        QueryMetrics.record(QueryMetrics.Kind.OVERLAY, start, settled, relaxed, heap.pushes());
+        if (!found) {
+            return Optional.empty();
+        }
+        double cost = space.distance(target);
+        int[] path = this.path(space, target);
+        List<String> stations = new ArrayList<>();
+        stations.add(this.graph.name(source));
+        for (int i = 1; i < path.length; i++) {
+            int level = this.queryLevel(path[i - 1], source, target);
+            if (level > 0 && this.cell(level, path[i - 1]) == this.cell(level, path[i])) {
+                this.unpack(level, path[i - 1], path[i], stations);
+            } else {
+                stations.add(this.graph.name(path[i]));
+            }
+        }
+        return Optional.of(new Route(stations, cost, settled));
+    }
+
+    // The coarsest level whose cell of the vertex holds neither the source nor the target, 0 if none.
+    private int queryLevel(int vertex, int source, int target) {
+        for (int level = this.layers.length; level > 0; level--) {
+            int[] cells = this.layers[level - 1].cells;
+            if (cells[vertex] != cells[source] && cells[vertex] != cells[target]) {
+                return level;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Relaxes the edges of the vertex on the given level: on level 0 all of its edges, otherwise the
+     * clique of its cell and its edges leaving that cell. When {@code withinCells} is given, only
+     * vertices of cell {@code within} are reached.
+     *
+     * @return the number of edges relaxed
+     */
+    private int relax(int vertex, int level, int[] withinCells, int within, SearchSpace space) {
+        double distance = space.distance(vertex);
+        int relaxed = 0;
+        int[] cells = null;
+        if (level > 0) {
+            Layer layer = this.layers[level - 1];
+            cells = layer.cells;
+            int cell = cells[vertex];
+            int first = layer.boundaryOffsets[cell];
+            int count = layer.boundaryOffsets[cell + 1] - first;
+            double[] clique = layer.cliques[cell];
+            int row = layer.boundaryIndex[vertex] * count;
+            for (int i = 0; i < count; i++) {
+                update(vertex, layer.boundary[first + i], distance + clique[row + i], space);
+            }
+            relaxed += count;
+        }
+        for (int edge = this.graph.firstEdge(vertex), end = this.graph.lastEdge(vertex); edge < end; edge++) {
+            int next = this.graph.target(edge);
+            if ((cells == null || cells[next] != cells[vertex]) && (withinCells == null || withinCells[next] == within)) {
+                update(vertex, next, distance + this.graph.cost(edge), space);
+                relaxed++;
+            }
+        }
+        return relaxed;
+    }
+
+    private static void update(int vertex, int next, double distance, SearchSpace space) {
+        if (distance < space.distance(next)) {
+            space.update(next, distance, vertex);
+            space.heap.push(next, distance);
+        }
+    }
+
+    private int[] path(SearchSpace space, int target) {
+        int length = 0;
+        for (int current = target; current >= 0; current = space.previous(current)) {
+            length++;
+        }
+        int[] path = new int[length];
+        for (int current = target; current >= 0; current = space.previous(current)) {
+            path[--length] = current;
+        }
+        return path;
+    }
+
+    // Appends the stations after from on the shortest path to to inside their cell of the level.
+    private void unpack(int level, int from, int to, List<String> stations) {
+        SearchSpace space = SearchSpace.acquire(this.graph.vertexCount());
+        this.searchCell(level, from, to, space);
+        int[] path = this.path(space, to);
+        for (int i = 1; i < path.length; i++) {
+            if (level > 1 && this.cell(level - 1, path[i - 1]) == this.cell(level - 1, path[i])) {
+                this.unpack(level - 1, path[i - 1], path[i], stations);
+            } else {
+                stations.add(this.graph.name(path[i]));
+            }
+        }
+    }
+
+    private double[] clique(int level, int cell, boolean parallel) {
+        Layer layer = this.layers[level - 1];
+        int first = layer.boundaryOffsets[cell];
+        int count = layer.boundaryOffsets[cell + 1] - first;
+        double[] clique = new double[count * count];
+        IntStream rows = IntStream.range(0, count);
+        (parallel ? rows.parallel() : rows).forEach(row -> {
+            SearchSpace space = SearchSpace.acquire(this.graph.vertexCount());
+            this.searchCell(level, layer.boundary[first + row], -1, space);
+            for (int i = 0; i < count; i++) {
+                clique[row * count + i] = space.distance(layer.boundary[first + i]);
+            }
+        });
+        return clique;
+    }
+
+    /**
+     * Dijkstra from the source inside its cell of the level, crossing the cells of the level below
+     * through their cliques. Stops early once the target is settled.
+     */
+    private void searchCell(int level, int source, int target, SearchSpace space) {
+        int[] cells = this.layers[level - 1].cells;
+        int cell = cells[source];
+        space.update(source, 0, -1);
+        space.heap.push(source, 0);
+        while (!space.heap.isEmpty()) {
+            int current = space.heap.pop();
+            if (current == target) {
+                return;
+            }
+            this.relax(current, level - 1, cells, cell, space);
+        }
+    }
+
+    /**
+     * One level of the partition, with the boundary vertices of each cell stored contiguously.
+     */
+    private static final class Layer {
+
+        final int[] cells;
+        final int[] boundaryOffsets;
+        final int[] boundary;
+        final int[] boundaryIndex;
+        final double[][] cliques;
+
+        Layer(CsrGraph graph, CsrGraph reverse, int[] cells, int cellCount) {
+            int size = cells.length;
+            this.cells = cells;
+            this.boundaryOffsets = new int[cellCount + 1];
+            this.boundaryIndex = new int[size];
+            for (int vertex = 0; vertex < size; vertex++) {
+                boolean isBoundary = crossesCells(graph, cells, vertex) || crossesCells(reverse, cells, vertex);
+                this.boundaryIndex[vertex] = isBoundary ? this.boundaryOffsets[cells[vertex] + 1]++ : -1;
+            }
+            for (int cell = 0; cell < cellCount; cell++) {
+                this.boundaryOffsets[cell + 1] += this.boundaryOffsets[cell];
+            }
+            this.boundary = new int[this.boundaryOffsets[cellCount]];
+            for (int vertex = 0; vertex < size; vertex++) {
+                if (this.boundaryIndex[vertex] >= 0) {
+                    this.boundary[this.boundaryOffsets[cells[vertex]] + this.boundaryIndex[vertex]] = vertex;
+                }
+            }
+            this.cliques = new double[cellCount][];
+        }
+
+        private static boolean crossesCells(CsrGraph graph, int[] cells, int vertex) {
+            for (int edge = graph.firstEdge(vertex); edge < graph.lastEdge(vertex); edge++) {
+                if (cells[graph.target(edge)] != cells[vertex]) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Label propagation repeated on coarser and coarser graphs: the cells found in one round become the
+     * nodes of the next, linked by the number of edges between them, until no cells merge.
+     *
+     * @return the cell of each node of the level, numbered from 0
+     */
+    private static int[] partition(Level level, int maxCellSize, SplittableRandom random) {
+        int[] cells = new int[level.size()];
+        Arrays.setAll(cells, node -> node);
+        while (true) {
+            int[] labels = propagateLabels(level, maxCellSize, random);
+            int count = 0;
+            for (int label : labels) {
+                count = Math.max(count, label + 1);
+            }
+            if (count == level.size()) {
+                return cells;
+            }
+            for (int node = 0; node < cells.length; node++) {
+                cells[node] = labels[cells[node]];
+            }
+            level = level.contract(labels, count);
+        }
+    }
+
+    /**
+     * Each node in turn, in a random order, joins the label with the heaviest edges to it among its
+     * neighbours, unless that cell would grow too large. Labels are then renumbered from 0.
+     */
+    private static int[] propagateLabels(Level level, int maxCellSize, SplittableRandom random) {
+        int size = level.size();
+        int[] labels = new int[size];
+        int[] sizes = level.nodeWeights().clone();
+        int[] order = new int[size];
+        Arrays.setAll(labels, node -> node);
+        Arrays.setAll(order, node -> node);
+        for (int i = size - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = order[i];
+            order[i] = order[j];
+            order[j] = swap;
+        }
+        int[] scores = new int[size];
+        int[] touched = new int[16];
+        for (int round = 0; round < MAX_ROUNDS; round++) {
+            int moved = 0;
+            for (int node : order) {
+                int count = 0;
+                for (int edge = level.offsets()[node]; edge < level.offsets()[node + 1]; edge++) {
+                    int label = labels[level.targets()[edge]];
+                    if (scores[label] == 0) {
+                        if (count == touched.length) {
+                            touched = Arrays.copyOf(touched, count * 2);
+                        }
+                        touched[count++] = label;
+                    }
+                    scores[label] += level.weights()[edge];
+                }
+                int weight = level.nodeWeights()[node];
+                int best = labels[node];
+                int bestScore = scores[best];
+                for (int i = 0; i < count; i++) {
+                    int label = touched[i];
+                    if (scores[label] > bestScore && sizes[label] + weight <= maxCellSize) {
+                        best = label;
+                        bestScore = scores[label];
+                    }
+                }
+                for (int i = 0; i < count; i++) {
+                    scores[touched[i]] = 0;
+                }
+                if (best != labels[node]) {
+                    sizes[labels[node]] -= weight;
+                    sizes[best] += weight;
+                    labels[node] = best;
+                    moved++;
+                }
+            }
+            if (moved == 0) {
+                break;
+            }
+        }
+        int[] renumbered = new int[size];
+        Arrays.fill(renumbered, -1);
+        int count = 0;
+        for (int node = 0; node < size; node++) {
+            if (renumbered[labels[node]] < 0) {
+                renumbered[labels[node]] = count++;
+            }
+            labels[node] = renumbered[labels[node]];
+        }
+        return labels;
+    }
+
+    /**
+     * Undirected weighted graph of one partitioning level, as adjacency arrays.
+     */
+    private record Level(int[] offsets, int[] targets, int[] weights, int[] nodeWeights) {
+
+        // Every edge in both directions, each of weight 1.
+        static Level of(CsrGraph graph, CsrGraph reverse) {
+            int size = graph.vertexCount();
+            int[] offsets = new int[size + 1];
+            int[] targets = new int[graph.edgeCount() + reverse.edgeCount()];
+            int edges = 0;
+            for (int vertex = 0; vertex < size; vertex++) {
+                for (CsrGraph direction : new CsrGraph[] {graph, reverse}) {
+                    for (int edge = direction.firstEdge(vertex); edge < direction.lastEdge(vertex); edge++) {
+                        targets[edges++] = direction.target(edge);
+                    }
+                }
+                offsets[vertex + 1] = edges;
+            }
+            int[] weights = new int[targets.length];
+            int[] nodeWeights = new int[size];
+            Arrays.fill(weights, 1);
+            Arrays.fill(nodeWeights, 1);
+            return new Level(offsets, targets, weights, nodeWeights);
+        }
+
+        int size() {
+            return this.nodeWeights.length;
+        }
+
+        // Merges the nodes of each label, summing the weights of their parallel edges.
+        Level contract(int[] labels, int count) {
+            int[] nodeWeights = new int[count];
+            int[] offsets = new int[count + 1];
+            for (int node = 0; node < this.size(); node++) {
+                nodeWeights[labels[node]] += this.nodeWeights[node];
+                for (int edge = this.offsets[node]; edge < this.offsets[node + 1]; edge++) {
+                    offsets[labels[node] + 1] += labels[this.targets[edge]] != labels[node] ? 1 : 0;
+                }
+            }
+            for (int label = 0; label < count; label++) {
+                offsets[label + 1] += offsets[label];
+            }
+            int[] targets = new int[offsets[count]];
+            int[] weights = new int[targets.length];
+            int[] next = Arrays.copyOf(offsets, count);
+            for (int node = 0; node < this.size(); node++) {
+                for (int edge = this.offsets[node]; edge < this.offsets[node + 1]; edge++) {
+                    int target = labels[this.targets[edge]];
+                    if (target != labels[node]) {
+                        targets[next[labels[node]]] = target;
+                        weights[next[labels[node]]++] = this.weights[edge];
+                    }
+                }
+            }
+            int[] positions = new int[count];
+            Arrays.fill(positions, -1);
+            int edges = 0;
+            for (int label = 0; label < count; label++) {
+                int first = edges;
+                for (int edge = offsets[label]; edge < offsets[label + 1]; edge++) {
+                    int target = targets[edge];
+                    if (positions[target] >= first) {
+                        weights[positions[target]] += weights[edge];
+                    } else {
+                        positions[target] = edges;
+                        targets[edges] = target;
+                        weights[edges++] = weights[edge];
+                    }
+                }
+                offsets[label] = first;
+            }
+            offsets[count] = edges;
+            return new Level(offsets, Arrays.copyOf(targets, edges), Arrays.copyOf(weights, edges), nodeWeights);
+        }
+    }
+}
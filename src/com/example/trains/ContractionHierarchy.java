@@ -0,0 +1,459 @@
+package com.example.trains;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.IntStream;
+
+import static java.lang.Double.POSITIVE_INFINITY;
+
+/**
+ * Contraction hierarchy over a {@link CsrGraph}. Vertices are contracted in edge-difference order,
+ * adding shortcuts where a bounded witness search finds no path avoiding the contracted vertex. Queries
+ * run a bidirectional Dijkstra that only climbs in rank and unpack shortcuts into original stations.
+ */
+public final class ContractionHierarchy {
+
+    private static final int MAGIC = 0x43484331;
+    private static final int VERSION = 1;
+    private static final int WITNESS_SETTLE_LIMIT = 500;
+
+    private final CsrGraph graph;
+    private final int[] ranks;
+    private final int[] upOffsets;
+    private final int[] upTargets;
+    private final double[] upCosts;
+    private final int[] upMiddles;
+    private final int[] downOffsets;
+    private final int[] downTargets;
+    private final double[] downCosts;
+    private final int[] downMiddles;
+
+    private ContractionHierarchy(CsrGraph graph, int[] ranks,
+                                 int[] upOffsets, int[] upTargets, double[] upCosts, int[] upMiddles,
+                                 int[] downOffsets, int[] downTargets, double[] downCosts, int[] downMiddles) {
+        this.graph = graph;
+        this.ranks = ranks;
+        this.upOffsets = upOffsets;
+        this.upTargets = upTargets;
+        this.upCosts = upCosts;
+        this.upMiddles = upMiddles;
+        this.downOffsets = downOffsets;
+        this.downTargets = downTargets;
+        this.downCosts = downCosts;
+        this.downMiddles = downMiddles;
+    }
+
+    public static ContractionHierarchy build(CsrGraph graph) {
+        return new Builder(graph).build();
+    }
+
+    public int rank(int vertex) {
+        return this.ranks[vertex];
+    }
+
+    public int shortcutCount() {
+        int shortcuts = 0;
+        for (int middle : this.upMiddles) {
+            shortcuts += middle >= 0 ? 1 : 0;
+        }
+        for (int middle : this.downMiddles) {
+            shortcuts += middle >= 0 ? 1 : 0;
+        }
+        return shortcuts;
+    }
+
+    public Optional<Route> route(int source, int target) {
+        long start = QueryMetrics.start();
+        int size = this.ranks.length;
+        SearchSpace forward = SearchSpace.acquire(size);
+        SearchSpace backward = SearchSpace.acquireBackward(size);
+        forward.update(source, 0, -1);
+        forward.heap.push(source, 0);
+        backward.update(target, 0, -1);
+        backward.heap.push(target, 0);
+        double best = POSITIVE_INFINITY;
+        int meeting = -1;
+        int settled = 0;
+        long relaxed = 0;
+        while (!forward.heap.isEmpty() || !backward.heap.isEmpty()) {
+            boolean isForward = backward.heap.isEmpty()
+                    || (!forward.heap.isEmpty() && forward.heap.peekKey() <= backward.heap.peekKey());
+            SearchSpace space = isForward ? forward : backward;
+            SearchSpace other = isForward ? backward : forward;
+            if (space.heap.peekKey() >= best) {
+                space.heap.clear();
+                continue;
+            }
+            int current = space.heap.pop();
+            settled++;
+            double distance = space.distance(current);
+            if (distance + other.distance(current) < best) {
+                best = distance + other.distance(current);
+                meeting = current;
+            }
+            int[] offsets = isForward ? this.upOffsets : this.downOffsets;
+            int[] targets = isForward ? this.upTargets : this.downTargets;
+            double[] costs = isForward ? this.upCosts : this.downCosts;
+            relaxed += offsets[current + 1] - offsets[current];
+            for (int edge = offsets[current], end = offsets[current + 1]; edge < end; edge++) {
+                int next = targets[edge];
+                double newDistance = distance + costs[edge];
+                if (newDistance < space.distance(next)) {
+                    space.update(next, newDistance, current);
+                    space.heap.push(next, newDistance);
+                }
+            }
+        }
+        QueryMetrics.record(QueryMetrics.Kind.HIERARCHY, start, settled, relaxed,
+                forward.heap.pushes() + backward.heap.pushes());
+        if (meeting < 0) {
+            return Optional.empty();
+        }
+        List<Integer> hierarchyPath = new ArrayList<>();
+        for (int current = meeting; current >= 0; current = forward.previous(current)) {
+            hierarchyPath.add(current);
+        }
+        Collections.reverse(hierarchyPath);
+        for (int current = backward.previous(meeting); current >= 0; current = backward.previous(current)) {
+            hierarchyPath.add(current);
+        }
+        List<String> stations = new ArrayList<>();
+        stations.add(this.graph.name(source));
+        for (int i = 1; i < hierarchyPath.size(); i++) {
+            this.unpack(hierarchyPath.get(i - 1), hierarchyPath.get(i), stations);
+        }
+        return Optional.of(new Route(stations, best, settled));
+    }
+
+    // Appends the original stations after the tail of the hierarchy edge tail -> head.
+    private void unpack(int tail, int head, List<String> stations) {
+        int[] stack = new int[16];
+        int size = 0;
+        stack[size++] = tail;
+        stack[size++] = head;
+        while (size > 0) {
+            int to = stack[--size];
+            int from = stack[--size];
+            int middle = this.middle(from, to);
+            if (middle < 0) {
+                stations.add(this.graph.name(to));
+            } else {
+                if (size + 4 > stack.length) {
+                    stack = Arrays.copyOf(stack, stack.length * 2);
+                }
+                stack[size++] = middle;
+                stack[size++] = to;
+                stack[size++] = from;
+                stack[size++] = middle;
+            }
+        }
+    }
+
+    private int middle(int from, int to) {
+        if (this.ranks[from] < this.ranks[to]) {
+            for (int edge = this.upOffsets[from]; edge < this.upOffsets[from + 1]; edge++) {
+                if (this.upTargets[edge] == to) {
+                    return this.upMiddles[edge];
+                }
+            }
+        } else {
+            for (int edge = this.downOffsets[to]; edge < this.downOffsets[to + 1]; edge++) {
+                if (this.downTargets[edge] == from) {
+                    return this.downMiddles[edge];
+                }
+            }
+        }
+        throw new IllegalStateException("No hierarchy edge from %d to %d".formatted(from, to));
+    }
+
+    public void writeTo(Path path) throws IOException {
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)))) {
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            output.writeInt(this.ranks.length);
+            output.writeInt(this.upTargets.length);
+            output.writeInt(this.downTargets.length);
+            writeInts(output, this.ranks);
+            writeInts(output, this.upOffsets);
+            writeInts(output, this.upTargets);
+            writeDoubles(output, this.upCosts);
+            writeInts(output, this.upMiddles);
+            writeInts(output, this.downOffsets);
+            writeInts(output, this.downTargets);
+            writeDoubles(output, this.downCosts);
+            writeInts(output, this.downMiddles);
+        }
+    }
+
+    public static ContractionHierarchy readFrom(Path path, CsrGraph graph) throws IOException {
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (input.readInt() != MAGIC || input.readInt() != VERSION) {
+                throw new IOException("%s is not a supported contraction hierarchy".formatted(path));
+            }
+            int size = input.readInt();
+            if (size != graph.vertexCount()) {
+                throw new IOException("Hierarchy has %d vertices, graph has %d".formatted(size, graph.vertexCount()));
+            }
+            int upEdges = input.readInt();
+            int downEdges = input.readInt();
+            return new ContractionHierarchy(graph, readInts(input, size),
+                    readInts(input, size + 1), readInts(input, upEdges),
+                    readDoubles(input, upEdges), readInts(input, upEdges),
+                    readInts(input, size + 1), readInts(input, downEdges),
+                    readDoubles(input, downEdges), readInts(input, downEdges));
+        }
+    }
+
+    private static void writeInts(DataOutputStream output, int[] values) throws IOException {
+        for (int value : values) {
+            output.writeInt(value);
+        }
+    }
+
+    private static void writeDoubles(DataOutputStream output, double[] values) throws IOException {
+        for (double value : values) {
+            output.writeDouble(value);
+        }
+    }
+
+    private static int[] readInts(DataInputStream input, int length) throws IOException {
+        int[] values = new int[length];
+        for (int i = 0; i < length; i++) {
+            values[i] = input.readInt();
+        }
+        return values;
+    }
+
+    private static double[] readDoubles(DataInputStream input, int length) throws IOException {
+        double[] values = new double[length];
+        for (int i = 0; i < length; i++) {
+            values[i] = input.readDouble();
+        }
+        return values;
+    }
+
+    /**
+     * Growable adjacency list of one vertex, keeping at most one edge, the cheapest, per neighbour.
+     */
+    private static final class Adjacency {
+
+        private int[] vertices = new int[4];
+        private double[] costs = new double[4];
+        private int[] middles = new int[4];
+        private int size;
+
+        boolean addOrLower(int vertex, double cost, int middle) {
+            for (int i = 0; i < this.size; i++) {
+                if (this.vertices[i] == vertex) {
+                    if (cost >= this.costs[i]) {
+                        return false;
+                    }
+                    this.costs[i] = cost;
+                    this.middles[i] = middle;
+                    return true;
+                }
+            }
+            if (this.size == this.vertices.length) {
+                this.vertices = Arrays.copyOf(this.vertices, this.size * 2);
+                this.costs = Arrays.copyOf(this.costs, this.size * 2);
+                this.middles = Arrays.copyOf(this.middles, this.size * 2);
+            }
+            this.vertices[this.size] = vertex;
+            this.costs[this.size] = cost;
+            this.middles[this.size] = middle;
+            this.size++;
+            return true;
+        }
+    }
+
+    private static final class Builder {
+
+        private final CsrGraph graph;
+        private final Adjacency[] out;
+        private final Adjacency[] in;
+        private final boolean[] contracted;
+        private final int[] deletedNeighbors;
+        private final int[] ranks;
+
+        Builder(CsrGraph graph) {
+            int size = graph.vertexCount();
+            this.graph = graph;
+            this.out = new Adjacency[size];
+            this.in = new Adjacency[size];
+            this.contracted = new boolean[size];
+            this.deletedNeighbors = new int[size];
+            this.ranks = new int[size];
+            for (int vertex = 0; vertex < size; vertex++) {
+                this.out[vertex] = new Adjacency();
+                this.in[vertex] = new Adjacency();
+            }
+            for (int vertex = 0; vertex < size; vertex++) {
+                for (int edge = graph.firstEdge(vertex); edge < graph.lastEdge(vertex); edge++) {
+                    if (graph.target(edge) != vertex) {
+                        this.link(vertex, graph.target(edge), graph.cost(edge), -1);
+                    }
+                }
+            }
+        }
+
+        private void link(int from, int to, double cost, int middle) {
+            if (this.out[from].addOrLower(to, cost, middle)) {
+                this.in[to].addOrLower(from, cost, middle);
+            }
+        }
+
+        // Simulated contractions are independent of each other, so initial priorities are computed in parallel.
+        ContractionHierarchy build() {
+            int size = this.ranks.length;
+            double[] priorities = IntStream.range(0, size).parallel().mapToDouble(this::priority).toArray();
+            IndexedHeap queue = new IndexedHeap(size);
+            for (int vertex = 0; vertex < size; vertex++) {
+                queue.push(vertex, priorities[vertex]);
+            }
+            int rank = 0;
+            while (!queue.isEmpty()) {
+                int vertex = queue.pop();
+                double priority = this.priority(vertex);
+                if (!queue.isEmpty() && priority > queue.peekKey()) {
+                    queue.push(vertex, priority);
+                    continue;
+                }
+                this.contract(vertex, true);
+                this.contracted[vertex] = true;
+                this.ranks[vertex] = rank++;
+                this.countDeleted(this.out[vertex]);
+                this.countDeleted(this.in[vertex]);
+            }
+            return this.extract();
+        }
+
+        private void countDeleted(Adjacency neighbors) {
+            for (int i = 0; i < neighbors.size; i++) {
+                if (!this.contracted[neighbors.vertices[i]]) {
+                    this.deletedNeighbors[neighbors.vertices[i]]++;
+                }
+            }
+        }
+
+        private double priority(int vertex) {
+            int edges = 0;
+            for (int i = 0; i < this.out[vertex].size; i++) {
+                edges += this.contracted[this.out[vertex].vertices[i]] ? 0 : 1;
+            }
+            for (int i = 0; i < this.in[vertex].size; i++) {
+                edges += this.contracted[this.in[vertex].vertices[i]] ? 0 : 1;
+            }
+            return this.contract(vertex, false) - edges + this.deletedNeighbors[vertex];
+        }
+
+        /**
+         * Counts, and when asked adds, the shortcuts needed to remove the vertex from the remaining graph.
+         */
+        private int contract(int vertex, boolean addShortcuts) {
+            Adjacency incoming = this.in[vertex];
+            Adjacency outgoing = this.out[vertex];
+            int shortcuts = 0;
+            for (int i = 0; i < incoming.size; i++) {
+                int from = incoming.vertices[i];
+                if (this.contracted[from]) {
+                    continue;
+                }
+                double maxOut = -1;
+                for (int j = 0; j < outgoing.size; j++) {
+                    int to = outgoing.vertices[j];
+                    if (!this.contracted[to] && to != from) {
+                        maxOut = Math.max(maxOut, outgoing.costs[j]);
+                    }
+                }
+                if (maxOut < 0) {
+                    continue;
+                }
+                SearchSpace space = this.witnessSearch(from, vertex, incoming.costs[i] + maxOut);
+                for (int j = 0; j < outgoing.size; j++) {
+                    int to = outgoing.vertices[j];
+                    double via = incoming.costs[i] + outgoing.costs[j];
+                    if (!this.contracted[to] && to != from && space.distance(to) > via) {
+                        shortcuts++;
+                        if (addShortcuts) {
+                            this.link(from, to, via, vertex);
+                        }
+                    }
+                }
+            }
+            return shortcuts;
+        }
+
+        private SearchSpace witnessSearch(int source, int excluded, double limit) {
+            SearchSpace space = SearchSpace.acquire(this.ranks.length);
+            space.update(source, 0, -1);
+            space.heap.push(source, 0);
+            int settled = 0;
+            while (!space.heap.isEmpty() && space.heap.peekKey() <= limit && settled++ < WITNESS_SETTLE_LIMIT) {
+                int current = space.heap.pop();
+                double distance = space.distance(current);
+                Adjacency edges = this.out[current];
+                for (int i = 0; i < edges.size; i++) {
+                    int next = edges.vertices[i];
+                    double newDistance = distance + edges.costs[i];
+                    if (next != excluded && !this.contracted[next] && newDistance < space.distance(next)) {
+                        space.update(next, newDistance, current);
+                        space.heap.push(next, newDistance);
+                    }
+                }
+            }
+            return space;
+        }
+
+        private ContractionHierarchy extract() {
+            int size = this.ranks.length;
+            int[] upOffsets = new int[size + 1];
+            int[] downOffsets = new int[size + 1];
+            for (int vertex = 0; vertex < size; vertex++) {
+                upOffsets[vertex + 1] = upOffsets[vertex] + this.countHigher(vertex, this.out[vertex]);
+                downOffsets[vertex + 1] = downOffsets[vertex] + this.countHigher(vertex, this.in[vertex]);
+            }
+            int[] upTargets = new int[upOffsets[size]];
+            double[] upCosts = new double[upTargets.length];
+            int[] upMiddles = new int[upTargets.length];
+            int[] downTargets = new int[downOffsets[size]];
+            double[] downCosts = new double[downTargets.length];
+            int[] downMiddles = new int[downTargets.length];
+            for (int vertex = 0; vertex < size; vertex++) {
+                this.copyHigher(vertex, this.out[vertex], upOffsets[vertex], upTargets, upCosts, upMiddles);
+                this.copyHigher(vertex, this.in[vertex], downOffsets[vertex], downTargets, downCosts, downMiddles);
+            }
+            return new ContractionHierarchy(this.graph, this.ranks,
+                    upOffsets, upTargets, upCosts, upMiddles,
+                    downOffsets, downTargets, downCosts, downMiddles);
+        }
+
+        private int countHigher(int vertex, Adjacency edges) {
+            int count = 0;
+            for (int i = 0; i < edges.size; i++) {
+                count += this.ranks[edges.vertices[i]] > this.ranks[vertex] ? 1 : 0;
+            }
+            return count;
+        }
+
+        private void copyHigher(int vertex, Adjacency edges, int offset, int[] targets, double[] costs, int[] middles) {
+            for (int i = 0; i < edges.size; i++) {
+                if (this.ranks[edges.vertices[i]] > this.ranks[vertex]) {
+                    targets[offset] = edges.vertices[i];
+                    costs[offset] = edges.costs[i];
+                    middles[offset] = edges.middles[i];
+                    offset++;
+                }
+            }
+        }
+    }
+}
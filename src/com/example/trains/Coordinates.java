@@ -0,0 +1,72 @@
+package com.example.trains;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static java.lang.Double.parseDouble;
+import static java.lang.Integer.parseInt;
+
+public final class Coordinates {
+
+    private final double[] latitudes;
+    private final double[] longitudes;
+
+    public Coordinates(int size) {
+        this.latitudes = new double[size];
+        this.longitudes = new double[size];
+        Arrays.fill(this.latitudes, Double.NaN);
+        Arrays.fill(this.longitudes, Double.NaN);
+    }
+
+    /**
+     * Reads {@code index, latitude, longitude} lines, in degrees. Invalid lines are ignored and
+     * vertices without a line have no coordinates.
+     */
+    public static Coordinates readFrom(String filename, int size) {
+        Coordinates coordinates = new Coordinates(size);
+        try {
+            Files.readAllLines(Path.of(filename)).forEach(coordinates::processLine);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        return coordinates;
+    }
+
+    private void processLine(String line) {
+        String[] params = line.split(",");
+        if (params.length >= 3) {
+            try {
+                int vertex = parseInt(params[0].trim());
+                double latitude = parseDouble(params[1].trim());
+                double longitude = parseDouble(params[2].trim());
+                if (vertex >= 0 && vertex < this.latitudes.length) {
+                    this.set(vertex, latitude, longitude);
+                }
+            } catch (NumberFormatException ignore) {}
+        }
+    }
+
+    public int size() {
+        return this.latitudes.length;
+    }
+
+    public void set(int vertex, double latitude, double longitude) {
+        this.latitudes[vertex] = latitude;
+        this.longitudes[vertex] = longitude;
+    }
+
+    public boolean has(int vertex) {
+        return vertex < this.latitudes.length
+                && !Double.isNaN(this.latitudes[vertex]) && !Double.isNaN(this.longitudes[vertex]);
+    }
+
+    public double latitude(int vertex) {
+        return this.latitudes[vertex];
+    }
+
+    public double longitude(int vertex) {
+        return this.longitudes[vertex];
+    }
+}
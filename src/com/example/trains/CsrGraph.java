@@ -0,0 +1,381 @@
+package com.example.trains;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.IntStream;
+
+import static java.lang.Double.POSITIVE_INFINITY;
+
+public final class CsrGraph {
+
+    private final String[] names;
+    private final int[] offsets;
+    private final int[] targets;
+    private final double[] costs;
+    private volatile CsrGraph reverse;
+    private int[] mirror;
+
+    public CsrGraph(String[] names, int[] offsets, int[] targets, double[] costs) {
+        if (offsets.length != names.length + 1 || targets.length != costs.length
+                || offsets[names.length] != targets.length) {
+            throw new IllegalArgumentException("Inconsistent compressed sparse row arrays");
+        }
+        this.names = names;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.costs = costs;
+    }
+
+    public static CsrGraph of(Vertex[] vertices) {
+        String[] names = new String[vertices.length];
+        int[] offsets = new int[vertices.length + 1];
+        for (int i = 0; i < vertices.length; i++) {
+            names[i] = vertices[i].getName();
+            offsets[i + 1] = offsets[i] + vertices[i].getEdges().length;
+        }
+        int[] targets = new int[offsets[vertices.length]];
+        double[] costs = new double[targets.length];
+        for (int i = 0; i < vertices.length; i++) {
+            int edge = offsets[i];
+            for (Edge e : vertices[i].getEdges()) {
+                targets[edge] = e.target().getIndex();
+                costs[edge] = e.cost();
+                edge++;
+            }
+        }
+        return new CsrGraph(names, offsets, targets, costs);
+    }
+
+    static CsrGraph of(String[] names, EdgeList edges) {
+        int[] offsets = new int[names.length + 1];
+        for (int edge = 0; edge < edges.size(); edge++) {
+            offsets[edges.source(edge) + 1]++;
+        }
+        for (int i = 0; i < names.length; i++) {
+            offsets[i + 1] += offsets[i];
+        }
+        int[] next = Arrays.copyOf(offsets, names.length);
+        int[] targets = new int[edges.size()];
+        double[] costs = new double[edges.size()];
+        for (int edge = 0; edge < edges.size(); edge++) {
+            int slot = next[edges.source(edge)]++;
+            targets[slot] = edges.target(edge);
+            costs[slot] = edges.cost(edge);
+        }
+        return new CsrGraph(names, offsets, targets, costs);
+    }
+
+    public int vertexCount() {
+        return this.names.length;
+    }
+
+    public int edgeCount() {
+        return this.targets.length;
+    }
+
+    public String name(int vertex) {
+        return this.names[vertex];
+    }
+
+    public int firstEdge(int vertex) {
+        return this.offsets[vertex];
+    }
+
+    public int lastEdge(int vertex) {
+        return this.offsets[vertex + 1];
+    }
+
+    public int target(int edge) {
+        return this.targets[edge];
+    }
+
+    public double cost(int edge) {
+        return this.costs[edge];
+    }
+
+    /**
+     * Returns the vertex the edge leaves from.
+     */
+    public int source(int edge) {
+        if (edge < 0 || edge >= this.targets.length) {
+            throw new IndexOutOfBoundsException(edge);
+        }
+        int low = 0;
+        int high = this.names.length - 1;
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (this.offsets[middle] <= edge) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Returns the first edge from the source to the target, or -1 if there is none.
+     */
+    public int findEdge(int source, int target) {
+        for (int edge = this.offsets[source], end = this.offsets[source + 1]; edge < end; edge++) {
+            if (this.targets[edge] == target) {
+                return edge;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Changes the cost of an edge, and of its counterpart in the reversed graph. Not safe while searches
+     * run on this graph; landmarks and hierarchies computed beforehand must be rebuilt.
+     */
+    void setCost(int edge, double cost) {
+        if (!(cost >= 0)) {
+            throw new IllegalArgumentException("Invalid edge cost %s".formatted(cost));
+        }
+        this.costs[edge] = cost;
+        CsrGraph reverse = this.reverse;
+        if (reverse != null) {
+            reverse.costs[this.mirror[edge]] = cost;
+        }
+    }
+
+    /**
+     * Returns the graph with every edge reversed, built on first use and then shared.
+     */
+    public CsrGraph reverse() {
+        CsrGraph reverse = this.reverse;
+        if (reverse == null) {
+            int size = this.names.length;
+            int[] offsets = new int[size + 1];
+            for (int target : this.targets) {
+                offsets[target + 1]++;
+            }
+            for (int i = 0; i < size; i++) {
+                offsets[i + 1] += offsets[i];
+            }
+            int[] next = Arrays.copyOf(offsets, size);
+            int[] targets = new int[this.targets.length];
+            double[] costs = new double[this.targets.length];
+            int[] toReverse = new int[this.targets.length];
+            int[] toForward = new int[this.targets.length];
+            for (int vertex = 0; vertex < size; vertex++) {
+                for (int edge = this.offsets[vertex]; edge < this.offsets[vertex + 1]; edge++) {
+                    int slot = next[this.targets[edge]]++;
+                    targets[slot] = vertex;
+                    costs[slot] = this.costs[edge];
+                    toReverse[edge] = slot;
+                    toForward[slot] = edge;
+                }
+            }
+            reverse = new CsrGraph(this.names, offsets, targets, costs);
+            reverse.mirror = toForward;
+            reverse.reverse = this;
+            this.mirror = toReverse;
+            this.reverse = reverse;
+        }
+        return reverse;
+    }
+
+    /**
+     * Returns the edge of the reversed graph matching the given edge, building the reversed graph if needed.
+     */
+    int mirror(int edge) {
+        this.reverse();
+        return this.mirror[edge];
+    }
+
+    public ShortestPathTree shortestPaths(int source) {
+        int size = this.names.length;
+        SearchSpace space = SearchSpace.acquire(size);
+        this.search(source, space);
+        double[] distances = new double[size];
+        int[] previous = new int[size];
+        space.copyTo(distances, previous, 0, size);
+        return new ShortestPathTree(this, source, distances, previous);
+    }
+
+    public DistanceMatrix allPairsDistances(boolean withPredecessors) {
+        return this.distancesFrom(IntStream.range(0, this.names.length).toArray(), withPredecessors);
+    }
+
+    /**
+     * Runs one single-source search per source on the common fork/join pool, each writing its own row.
+     */
+    public DistanceMatrix distancesFrom(int[] sources, boolean withPredecessors) {
+        int size = this.names.length;
+        double[] distances = new double[Math.multiplyExact(sources.length, size)];
+        int[] previous = withPredecessors ? new int[distances.length] : null;
+        IntStream.range(0, sources.length).parallel().forEach(row -> {
+            SearchSpace space = SearchSpace.acquire(size);
+            this.search(sources[row], space);
+            space.copyTo(distances, previous, row * size, size);
+        });
+        return new DistanceMatrix(this, sources.clone(), distances, previous);
+    }
+
+    void search(int source, SearchSpace space) {
+        long start = QueryMetrics.start();
+        IndexedHeap heap = space.heap;
+        space.update(source, 0, -1);
+        heap.push(source, 0);
+        int settled = 0;
+        long relaxed = 0;
+        while (!heap.isEmpty()) {
+            int current = heap.pop();
+            settled++;
+            relaxed += this.offsets[current + 1] - this.offsets[current];
+            double distance = space.distance(current);
+            for (int edge = this.offsets[current], end = this.offsets[current + 1]; edge < end; edge++) {
+                int target = this.targets[edge];
+                double newDistance = distance + this.costs[edge];
+                if (newDistance < space.distance(target)) {
+                    space.update(target, newDistance, current);
+                    heap.push(target, newDistance);
+                }
+            }
+        }
+        QueryMetrics.record(QueryMetrics.Kind.SHORTEST_PATHS, start, settled, relaxed, heap.pushes());
+    }
+
+    /**
+     * Dijkstra from the source that stops as soon as the target is settled.
+     */
+    public Optional<Route> route(int source, int target) {
+        long start = QueryMetrics.start();
+        SearchSpace space = SearchSpace.acquire(this.names.length);
+        IndexedHeap heap = space.heap;
+        space.update(source, 0, -1);
+        heap.push(source, 0);
+        int settled = 0;
+        long relaxed = 0;
+        while (!heap.isEmpty()) {
+            int current = heap.pop();
+            settled++;
+            if (current == target) {
+                QueryMetrics.record(QueryMetrics.Kind.ROUTE, start, settled, relaxed, heap.pushes());
+                return Optional.of(new Route(this.path(space, target), space.distance(target), settled));
+            }
+            relaxed += this.offsets[current + 1] - this.offsets[current];
+            double distance = space.distance(current);
+            for (int edge = this.offsets[current], end = this.offsets[current + 1]; edge < end; edge++) {
+                int next = this.targets[edge];
+                double newDistance = distance + this.costs[edge];
+                if (newDistance < space.distance(next)) {
+                    space.update(next, newDistance, current);
+                    heap.push(next, newDistance);
+                }
+            }
+        }
+        QueryMetrics.record(QueryMetrics.Kind.ROUTE, start, settled, relaxed, heap.pushes());
+        return Optional.empty();
+    }
+
+    /**
+     * A* search ordering vertices by distance plus the heuristic estimate. Vertices are reopened when a
+     * shorter distance is found, so the route stays exact for any admissible heuristic. Vertices with an
+     * infinite estimate cannot reach the target and are never queued.
+     */
+    public Optional<Route> route(int source, int target, Heuristic heuristic) {
+        long start = QueryMetrics.start();
+        SearchSpace space = SearchSpace.acquire(this.names.length);
+        IndexedHeap heap = space.heap;
+        space.update(source, 0, -1);
+        heap.push(source, heuristic.estimate(source, target));
+        int settled = 0;
+        long relaxed = 0;
+        while (!heap.isEmpty()) {
+            int current = heap.pop();
+            settled++;
+            if (current == target) {
+                QueryMetrics.record(QueryMetrics.Kind.A_STAR, start, settled, relaxed, heap.pushes());
+                return Optional.of(new Route(this.path(space, target), space.distance(target), settled));
+            }
+            relaxed += this.offsets[current + 1] - this.offsets[current];
+            double distance = space.distance(current);
+            for (int edge = this.offsets[current], end = this.offsets[current + 1]; edge < end; edge++) {
+                int next = this.targets[edge];
+                double newDistance = distance + this.costs[edge];
+                if (newDistance < space.distance(next)) {
+                    double estimate = heuristic.estimate(next, target);
+                    if (estimate != POSITIVE_INFINITY) {
+                        space.update(next, newDistance, current);
+                        heap.push(next, newDistance + estimate);
+                    }
+                }
+            }
+        }
+        QueryMetrics.record(QueryMetrics.Kind.A_STAR, start, settled, relaxed, heap.pushes());
+        return Optional.empty();
+    }
+
+    /**
+     * Alternates a forward search from the source and a backward search from the target over the
+     * reversed graph, until the two frontiers cannot improve the best meeting found so far.
+     */
+    public Optional<Route> bidirectionalRoute(int source, int target) {
+        if (source == target) {
+            return Optional.of(new Route(List.of(this.names[source]), 0, 1));
+        }
+        long start = QueryMetrics.start();
+        CsrGraph reverse = this.reverse();
+        SearchSpace forward = SearchSpace.acquire(this.names.length);
+        SearchSpace backward = SearchSpace.acquireBackward(this.names.length);
+        forward.update(source, 0, -1);
+        forward.heap.push(source, 0);
+        backward.update(target, 0, -1);
+        backward.heap.push(target, 0);
+        double best = POSITIVE_INFINITY;
+        int meetingTail = -1;
+        int meetingHead = -1;
+        int settled = 0;
+        long relaxed = 0;
+        while (!forward.heap.isEmpty() && !backward.heap.isEmpty()
+                && forward.heap.peekKey() + backward.heap.peekKey() < best) {
+            boolean isForward = forward.heap.peekKey() <= backward.heap.peekKey();
+            CsrGraph graph = isForward ? this : reverse;
+            SearchSpace space = isForward ? forward : backward;
+            SearchSpace other = isForward ? backward : forward;
+            int current = space.heap.pop();
+            settled++;
+            relaxed += graph.offsets[current + 1] - graph.offsets[current];
+            double distance = space.distance(current);
+            for (int edge = graph.offsets[current], end = graph.offsets[current + 1]; edge < end; edge++) {
+                int next = graph.targets[edge];
+                double newDistance = distance + graph.costs[edge];
+                if (newDistance < space.distance(next)) {
+                    space.update(next, newDistance, current);
+                    space.heap.push(next, newDistance);
+                }
+                double total = newDistance + other.distance(next);
+                if (total < best) {
+                    best = total;
+                    meetingTail = isForward ? current : next;
+                    meetingHead = isForward ? next : current;
+                }
+            }
+        }
+        QueryMetrics.record(QueryMetrics.Kind.BIDIRECTIONAL, start, settled, relaxed,
+                forward.heap.pushes() + backward.heap.pushes());
+        if (meetingTail < 0) {
+            return Optional.empty();
+        }
+        List<String> stations = this.path(forward, meetingTail);
+        for (int current = meetingHead; current >= 0; current = backward.previous(current)) {
+            stations.add(this.names[current]);
+        }
+        return Optional.of(new Route(stations, best, settled));
+    }
+
+    private List<String> path(SearchSpace space, int target) {
+        List<String> stations = new ArrayList<>();
+        for (int current = target; current >= 0; current = space.previous(current)) {
+            stations.add(this.names[current]);
+        }
+        Collections.reverse(stations);
+        return stations;
+    }
+}
@@ -0,0 +1,35 @@
+package com.example.trains;
+
+/**
+ * Distances from a list of sources, one row per source and one column per vertex, stored row after row.
+ */
+public record DistanceMatrix(
+        CsrGraph graph,
+        int[] sources,
+        double[] distances,
+        int[] previous
+) {
+
+    public int size() {
+        return this.graph.vertexCount();
+    }
+
+    public int rows() {
+        return this.sources.length;
+    }
+
+    public int source(int row) {
+        return this.sources[row];
+    }
+
+    public double distance(int row, int target) {
+        return this.distances[row * this.size() + target];
+    }
+
+    public int previous(int row, int target) {
+        if (this.previous == null) {
+            throw new IllegalStateException("Predecessors were not computed");
+        }
+        return this.previous[row * this.size() + target];
+    }
+}
@@ -0,0 +1,171 @@
+package com.example.trains;
+
+import java.util.Arrays;
+
+import static java.lang.Double.POSITIVE_INFINITY;
+
+/**
+ * A shortest-path tree that is repaired in place when edge costs change, instead of being recomputed.
+ * After a batch of changes, the subtrees hanging from edges that became more expensive are detached and
+ * reattached from their unaffected in-neighbours; then every vertex whose distance can drop is propagated
+ * in Dijkstra order, as in Ramalingam and Reps. Only vertices whose distance or parent may change are
+ * visited.
+ */
+public final class DynamicShortestPaths {
+
+    private final Graph owner;
+    private final CsrGraph graph;
+    private final int source;
+    private final double[] distances;
+    private final int[] previous;
+    private final int[] previousEdges;
+    private final boolean[] detached;
+    private final int[] stack;
+    private final IndexedHeap heap;
+
+    /**
+     * Grows the tree over the compressed form of the graph; cost changes go back through the graph so
+     * that its vertices and caches see them too.
+     */
+    DynamicShortestPaths(Graph owner, int source) {
+        CsrGraph graph = owner.getCsr();
+        int size = graph.vertexCount();
+        this.owner = owner;
+        this.graph = graph;
+        this.source = source;
+        this.distances = new double[size];
+        this.previous = new int[size];
+        this.previousEdges = new int[size];
+        this.detached = new boolean[size];
+        this.stack = new int[size];
+        this.heap = new IndexedHeap(size);
+        Arrays.fill(this.distances, POSITIVE_INFINITY);
+        Arrays.fill(this.previous, -1);
+        Arrays.fill(this.previousEdges, -1);
+        this.distances[source] = 0;
+        this.heap.push(source, 0);
+        this.propagate();
+    }
+
+    public CsrGraph graph() {
+        return this.graph;
+    }
+
+    public int source() {
+        return this.source;
+    }
+
+    public double distanceTo(int vertex) {
+        return this.distances[vertex];
+    }
+
+    public int previous(int vertex) {
+        return this.previous[vertex];
+    }
+
+    /**
+     * Returns a copy of the current tree.
+     */
+    public ShortestPathTree toTree() {
+        return new ShortestPathTree(this.graph, this.source, this.distances.clone(), this.previous.clone());
+    }
+
+    /**
+     * Sets the cost of each edge on the graph and repairs the tree once for the whole batch.
+     *
+     * @return the number of vertices settled during the repair
+     */
+    public int setCosts(int[] edges, double[] costs) {
+        if (edges.length != costs.length) {
+            throw new IllegalArgumentException("Expected one cost per edge");
+        }
+        if (this.owner.getCsr() != this.graph) {
+            throw new IllegalStateException("The graph was changed since this tree was built");
+        }
+        for (int i = 0; i < edges.length; i++) {
+            this.owner.setCost(edges[i], costs[i]);
+        }
+        return this.repair(edges);
+    }
+
+    /**
+     * Repairs the tree after the costs of the given edges were changed on the graph, for instance through
+     * {@link Graph#setCost(String, String, double)}. Every changed edge must be listed.
+     *
+     * @return the number of vertices settled during the repair
+     */
+    public int repair(int... edges) {
+        int detachedCount = 0;
+        for (int edge : edges) {
+            int target = this.graph.target(edge);
+            if (this.previousEdges[target] == edge && !this.detached[target]
+                    && this.distances[this.previous[target]] + this.graph.cost(edge) > this.distances[target]) {
+                detachedCount = this.detach(target, detachedCount);
+            }
+        }
+        CsrGraph reverse = this.graph.reverse();
+        for (int i = 0; i < detachedCount; i++) {
+            int vertex = this.stack[i];
+            for (int edge = reverse.firstEdge(vertex), end = reverse.lastEdge(vertex); edge < end; edge++) {
+                int tail = reverse.target(edge);
+                if (!this.detached[tail]) {
+                    this.relax(tail, reverse.mirror(edge), vertex, this.distances[tail] + reverse.cost(edge));
+                }
+            }
+        }
+        for (int i = 0; i < detachedCount; i++) {
+            this.detached[this.stack[i]] = false;
+        }
+        for (int edge : edges) {
+            int tail = this.graph.source(edge);
+            this.relax(tail, edge, this.graph.target(edge), this.distances[tail] + this.graph.cost(edge));
+        }
+        return this.propagate();
+    }
+
+    // Appends the subtree rooted at the vertex to the stack and forgets its distances.
+    private int detach(int root, int count) {
+        int first = count;
+        this.stack[count++] = root;
+        this.detached[root] = true;
+        for (int i = first; i < count; i++) {
+            int vertex = this.stack[i];
+            for (int edge = this.graph.firstEdge(vertex), end = this.graph.lastEdge(vertex); edge < end; edge++) {
+                int child = this.graph.target(edge);
+                if (this.previousEdges[child] == edge && !this.detached[child]) {
+                    this.stack[count++] = child;
+                    this.detached[child] = true;
+                }
+            }
+        }
+        for (int i = first; i < count; i++) {
+            int vertex = this.stack[i];
+            this.distances[vertex] = POSITIVE_INFINITY;
+            this.previous[vertex] = -1;
+            this.previousEdges[vertex] = -1;
+        }
+        return count;
+    }
+
+    private void relax(int tail, int edge, int head, double distance) {
+        if (distance < this.distances[head]) {
+            this.distances[head] = distance;
+            this.previous[head] = tail;
+            this.previousEdges[head] = edge;
+            this.heap.push(head, distance);
+        }
+    }
+
+    private int propagate() {
+        int settled = 0;
+        while (!this.heap.isEmpty()) {
+            int current = this.heap.pop();
+            settled++;
+            double distance = this.distances[current];
+            for (int edge = this.graph.firstEdge(current), end = this.graph.lastEdge(current); edge < end; edge++) {
+                this.relax(current, edge, this.graph.target(edge), distance + this.graph.cost(edge));
+            }
+        }
+        return settled;
+    }
+}
@@ -1,3 +1,5 @@
+package com.example.trains;
+
 public record Edge(
         Vertex target,
         double cost
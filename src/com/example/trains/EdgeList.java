@@ -0,0 +1,50 @@
+package com.example.trains;
+
+import java.util.Arrays;
+
+final class EdgeList {
+
+    private int[] sources;
+    private int[] targets;
+    private double[] costs;
+    private int size;
+
+    EdgeList() {
+        this(16);
+    }
+
+    EdgeList(int capacity) {
+        this.sources = new int[capacity];
+        this.targets = new int[capacity];
+        this.costs = new double[capacity];
+    }
+
+    void add(int source, int target, double cost) {
+        if (this.size == this.sources.length) {
+            int capacity = Math.max(16, this.size * 2);
+            this.sources = Arrays.copyOf(this.sources, capacity);
+            this.targets = Arrays.copyOf(this.targets, capacity);
+            this.costs = Arrays.copyOf(this.costs, capacity);
+        }
+        this.sources[this.size] = source;
+        this.targets[this.size] = target;
+        this.costs[this.size] = cost;
+        this.size++;
+    }
+
+    int size() {
+        return this.size;
+    }
+
+    int source(int edge) {
+        return this.sources[edge];
+    }
+
+    int target(int edge) {
+        return this.targets[edge];
+    }
+
+    double cost(int edge) {
+        return this.costs[edge];
+    }
+}
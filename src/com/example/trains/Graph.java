@@ -0,0 +1,472 @@
+package com.example.trains;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.IntStream;
+
+import static java.lang.Double.POSITIVE_INFINITY;
+import static java.util.Arrays.stream;
+import static java.util.Comparator.comparing;
+import static java.util.function.Predicate.not;
+
+public class Graph {
+
+    public enum Engine {
+        LINEAR_SCAN,
+        BINARY_HEAP,
+        COMPRESSED
+    }
+
+    private Vertex[] vertices;
+    private List<Vertex> pending;
+    private CsrGraph csr;
+    private StationIndex stations;
+    private Coordinates coordinates;
+    private Engine engine = Engine.BINARY_HEAP;
+    private ShortestPathCache cache;
+    private long version;
+
+    /**
+     * Returns one vertex per station, with its edges. Graphs loaded from a file only hold the compressed
+     * form; the vertices are created from it on the first call.
+     */
+    public Vertex[] getVertices() {
+        this.freeze();
+        return this.vertexView();
+    }
+
+    public CsrGraph getCsr() {
+        this.freeze();
+        return csr;
+    }
+
+    public StationIndex getStations() {
+        this.freeze();
+        if (this.stations == null && this.csr != null) {
+            this.stations = StationIndex.of(this.csr);
+        }
+        return stations;
+    }
+
+    public Coordinates getCoordinates() {
+        return coordinates;
+    }
+
+    public void setCoordinates(Coordinates coordinates) {
+        this.coordinates = coordinates;
+    }
+
+    public Engine getEngine() {
+        return engine;
+    }
+
+    public void setEngine(Engine engine) {
+        this.engine = engine;
+    }
+
+    public ShortestPathCache getCache() {
+        return cache;
+    }
+
+    /**
+     * Serves {@link #distancesFrom(String)} and {@link #shortestPaths(String)} from the cache, or
+     * computes every query when null.
+     */
+    public void setCache(ShortestPathCache cache) {
+        if (cache != null && cache.getGraph() != this) {
+            throw new IllegalArgumentException("Cache belongs to another graph");
+        }
+        this.cache = cache;
+    }
+
+    /**
+     * Returns a number that changes whenever vertices, edges or costs change.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    public void readFrom(String filename) {
+        try {
+            long start = QueryMetrics.start();
+            this.load(NetworkReader.read(Path.of(filename)));
+            QueryMetrics.record(QueryMetrics.Kind.LOAD, start, this.csr.vertexCount(), this.csr.edgeCount(), 0);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    public void readSnapshot(String filename) {
+        try {
+            long start = QueryMetrics.start();
+            this.load(GraphSnapshot.read(Path.of(filename)));
+            QueryMetrics.record(QueryMetrics.Kind.LOAD, start, this.csr.vertexCount(), this.csr.edgeCount(), 0);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    public void writeSnapshot(String filename) {
+        try {
+            GraphSnapshot.write(this.getCsr(), Path.of(filename));
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    public void readCoordinatesFrom(String filename) {
+        this.coordinates = Coordinates.readFrom(filename, this.getCsr().vertexCount());
+    }
+
+    // Only the compressed form is kept; vertices and the station index are built when first needed.
+    private void load(CsrGraph csr) {
+        this.vertices = null;
+        this.pending = null;
+        this.csr = csr;
+        this.stations = null;
+        this.coordinates = null;
+        this.version++;
+    }
+
+    private Vertex[] vertexView() {
+        if (this.vertices == null && this.csr != null) {
+            CsrGraph csr = this.csr;
+            Vertex[] vertices = IntStream.range(0, csr.vertexCount())
+                    .mapToObj(i -> new Vertex(i, csr.name(i)))
+                    .toArray(Vertex[]::new);
+            for (Vertex vertex : vertices) {
+                int first = csr.firstEdge(vertex.getIndex());
+                Edge[] edges = new Edge[csr.lastEdge(vertex.getIndex()) - first];
+                for (int i = 0; i < edges.length; i++) {
+                    edges[i] = new Edge(vertices[csr.target(first + i)], csr.cost(first + i));
+                }
+                vertex.setEdges(edges);
+            }
+            this.vertices = vertices;
+        }
+        return this.vertices;
+    }
+
+    public Vertex addVertex(String name) {
+        if (this.pending == null) {
+            Vertex[] vertices = this.vertexView();
+            this.pending = vertices == null ? new ArrayList<>() : new ArrayList<>(List.of(vertices));
+            this.csr = null;
+        }
+        Vertex vertex = new Vertex(this.pending.size(), name);
+        this.pending.add(vertex);
+        this.version++;
+        return vertex;
+    }
+
+    public void addEdge(int source, int target, double cost) {
+        List<Vertex> vertices = this.pending != null ? this.pending : Arrays.asList(this.vertexView());
+        vertices.get(source).addEdge(new Edge(vertices.get(target), cost));
+        this.csr = null;
+        this.version++;
+    }
+
+    /**
+     * Ends building: trims every adjacency array to its exact size and rebuilds the compressed form. The
+     * station index is rebuilt on the next lookup.
+     * Queries freeze the graph implicitly.
+     */
+    public void freeze() {
+        if (this.pending != null) {
+            this.vertices = this.pending.toArray(Vertex[]::new);
+            this.pending = null;
+            this.stations = null;
+        }
+        if (this.csr == null && this.vertices != null) {
+            for (Vertex vertex : this.vertices) {
+                vertex.freeze();
+            }
+            this.csr = CsrGraph.of(this.vertices);
+        }
+    }
+
+    /**
+     * Changes the cost of every edge from one station to another, in both the vertices and the compressed
+     * form.
+     */
+    public void setCost(String from, String to, double cost) {
+        CsrGraph csr = this.getCsr();
+        int source = this.indexOf(from);
+        int target = this.indexOf(to);
+        boolean found = false;
+        for (int edge = csr.firstEdge(source); edge < csr.lastEdge(source); edge++) {
+            if (csr.target(edge) == target) {
+                this.setCost(edge, cost);
+                found = true;
+            }
+        }
+        if (!found) {
+            throw new IllegalArgumentException("No edge from %s to %s".formatted(from, to));
+        }
+    }
+
+    /**
+     * Changes the cost of one edge of the compressed form, and of the matching vertex edge when the
+     * vertices were created.
+     */
+    void setCost(int edge, double cost) {
+        CsrGraph csr = this.getCsr();
+        csr.setCost(edge, cost);
+        if (this.vertices != null) {
+            int source = csr.source(edge);
+            Vertex vertex = this.vertices[source];
+            int i = edge - csr.firstEdge(source);
+            vertex.setEdge(i, new Edge(vertex.getEdges()[i].target(), cost));
+        }
+        this.version++;
+    }
+
+    public void toDotFormat(PrintStream output) {
+        try (ResultWriter writer = ResultWriter.of(output)) {
+            this.toDotFormat(writer);
+        }
+    }
+
+    public void toDotFormat(String filename) {
+        String filenameWithExtension = filename.endsWith(".dot") ?
+                filename : filename.concat(".dot");
+        try (ResultWriter writer = ResultWriter.open(Path.of(filenameWithExtension))) {
+            this.toDotFormat(writer);
+        }
+    }
+
+    private void toDotFormat(ResultWriter writer) {
+        CsrGraph csr = this.getCsr();
+        if (csr == null) {
+            return;
+        }
+        writer.write("digraph {").newLine();
+        for (int vertex = 0; vertex < csr.vertexCount(); vertex++) {
+            for (int edge = csr.firstEdge(vertex); edge < csr.lastEdge(vertex); edge++) {
+                writer.write('"').write(csr.name(vertex)).write("\" -> \"").write(csr.name(csr.target(edge)))
+                        .write("\" [w=").write(csr.cost(edge), 6).write(']').newLine();
+            }
+        }
+        writer.write('}').newLine();
+    }
+
+    public void printDistances(PrintStream output) {
+        try (ResultWriter writer = ResultWriter.of(output)) {
+            for (Vertex vertex : this.getVertices()) {
+                Vertex current = vertex;
+                while (current != null) {
+                    writer.write(current.getName()).write(", ");
+                    current = current.getPrevious();
+                }
+                writer.write(vertex.getDistance(), 2).newLine();
+            }
+        }
+    }
+
+    /**
+     * Prints a {@code station,distance,previous} header then one row per vertex, with the distance in
+     * full precision and empty fields for unreachable stations.
+     */
+    public void printDistancesCsv(PrintStream output) {
+        try (ResultWriter writer = ResultWriter.of(output)) {
+            writer.write("station,distance,previous").newLine();
+            for (Vertex vertex : this.getVertices()) {
+                writer.writeCsv(vertex.getName()).write(',');
+                if (vertex.getDistance() != POSITIVE_INFINITY) {
+                    writer.write(Double.toString(vertex.getDistance()));
+                }
+                writer.write(',');
+                if (vertex.getPrevious() != null) {
+                    writer.writeCsv(vertex.getPrevious().getName());
+                }
+                writer.newLine();
+            }
+        }
+    }
+
+    public void printEdges(PrintStream output) {
+        CsrGraph csr = this.getCsr();
+        try (ResultWriter writer = ResultWriter.of(output)) {
+            for (int vertex = 0; csr != null && vertex < csr.vertexCount(); vertex++) {
+                for (int edge = csr.firstEdge(vertex); edge < csr.lastEdge(vertex); edge++) {
+                    writer.write(csr.name(vertex)).write(", ").write(csr.name(csr.target(edge))).newLine();
+                }
+            }
+        }
+    }
+
+    /**
+     * Prints a {@code source,target,cost} header then one row per edge.
+     */
+    public void printEdgesCsv(PrintStream output) {
+        CsrGraph csr = this.getCsr();
+        try (ResultWriter writer = ResultWriter.of(output)) {
+            writer.write("source,target,cost").newLine();
+            for (int vertex = 0; csr != null && vertex < csr.vertexCount(); vertex++) {
+                for (int edge = csr.firstEdge(vertex); edge < csr.lastEdge(vertex); edge++) {
+                    writer.writeCsv(csr.name(vertex)).write(',').writeCsv(csr.name(csr.target(edge))).write(',')
+                            .write(Double.toString(csr.cost(edge))).newLine();
+                }
+            }
+        }
+    }
+
+    public void distancesFrom(Vertex start) {
+        for (Vertex vertex : this.getVertices()) {
+            vertex.setVisited(false);
+            vertex.setDistance(Double.POSITIVE_INFINITY);
+            vertex.setPrevious(null);
+        }
+        start.setDistance(0);
+        switch (this.engine) {
+            case LINEAR_SCAN -> this.linearScan(start);
+            case BINARY_HEAP -> this.binaryHeap(start);
+            case COMPRESSED -> this.compressed(start);
+        }
+    }
+
+    private void linearScan(Vertex start) {
+        long begin = QueryMetrics.start();
+        int settled = 0;
+        long relaxed = 0;
+        Vertex current = start;
+        while (current != null && current.getDistance() != POSITIVE_INFINITY) {
+            settled++;
+            relaxed += current.getEdges().length;
+            Vertex neighbor = current;
+            stream(current.getEdges())
+                    .filter(e -> !e.target().isVisited())
+                    .forEach(e -> this.updateShortestDistance(neighbor, e));
+            current.setVisited(true);
+            current = stream(this.vertices)
+                    .filter(not(Vertex::isVisited))
+                    .min(comparing(Vertex::getDistance))
+                    .orElse(null);
+        }
+        QueryMetrics.record(QueryMetrics.Kind.DISTANCES_FROM, begin, settled, relaxed, 0);
+    }
+
+    private void binaryHeap(Vertex start) {
+        long begin = QueryMetrics.start();
+        int settled = 0;
+        long relaxed = 0;
+        IndexedHeap heap = new IndexedHeap(this.vertices.length);
+        heap.push(start.getIndex(), start.getDistance());
+        while (!heap.isEmpty()) {
+            Vertex current = this.vertices[heap.pop()];
+            settled++;
+            relaxed += current.getEdges().length;
+            for (Edge edge : current.getEdges()) {
+                Vertex target = edge.target();
+                if (!target.isVisited() && this.updateShortestDistance(current, edge)) {
+                    heap.push(target.getIndex(), target.getDistance());
+                }
+            }
+            current.setVisited(true);
+        }
+        QueryMetrics.record(QueryMetrics.Kind.DISTANCES_FROM, begin, settled, relaxed, heap.pushes());
+    }
+
+    private void compressed(Vertex start) {
+        this.apply(this.csr.shortestPaths(start.getIndex()));
+    }
+
+    private void apply(ShortestPathTree tree) {
+        Vertex[] vertices = this.vertexView();
+        for (Vertex vertex : vertices) {
+            int previous = tree.previous()[vertex.getIndex()];
+            vertex.setDistance(tree.distanceTo(vertex.getIndex()));
+            vertex.setVisited(tree.isReachable(vertex.getIndex()));
+            vertex.setPrevious(previous < 0 ? null : vertices[previous]);
+        }
+    }
+
+    public void distancesFrom(String start) {
+        if (this.cache != null) {
+            this.apply(this.cache.get(start));
+        } else {
+            this.distancesFrom(this.getVertices()[this.indexOf(start)]);
+        }
+    }
+
+    public ShortestPathTree shortestPaths(String source) {
+        return this.cache != null ? this.cache.get(source) : this.getCsr().shortestPaths(this.indexOf(source));
+    }
+
+    public DynamicShortestPaths dynamicShortestPaths(String source) {
+        return new DynamicShortestPaths(this, this.indexOf(source));
+    }
+
+    public Optional<Route> route(String from, String to) {
+        return this.getCsr().route(this.indexOf(from), this.indexOf(to));
+    }
+
+    public Optional<Route> route(String from, String to, Heuristic heuristic) {
+        return this.getCsr().route(this.indexOf(from), this.indexOf(to), heuristic);
+    }
+
+    public Optional<Route> bidirectionalRoute(String from, String to) {
+        return this.getCsr().bidirectionalRoute(this.indexOf(from), this.indexOf(to));
+    }
+
+    public Optional<Route> route(String from, String to, ContractionHierarchy hierarchy) {
+        return hierarchy.route(this.indexOf(from), this.indexOf(to));
+    }
+
+    public ContractionHierarchy contract() {
+        return ContractionHierarchy.build(this.getCsr());
+    }
+
+    public Optional<Route> route(String from, String to, CellOverlay overlay) {
+        return overlay.route(this.indexOf(from), this.indexOf(to));
+    }
+
+    public CellOverlay partition(int... maxCellSizes) {
+        return CellOverlay.build(this.getCsr(), maxCellSizes);
+    }
+
+    public Landmarks computeLandmarks(int count) {
+        return Landmarks.select(this.getCsr(), count);
+    }
+
+    public DistanceMatrix allPairsDistances() {
+        return this.getCsr().allPairsDistances(false);
+    }
+
+    public DistanceMatrix allPairsDistances(boolean withPredecessors) {
+        return this.getCsr().allPairsDistances(withPredecessors);
+    }
+
+    /**
+     * Computes the distances from every listed station at once, one row per station in list order,
+     * without touching the vertices.
+     */
+    public DistanceMatrix distancesFrom(List<String> sources, boolean withPredecessors) {
+        CsrGraph csr = this.getCsr();
+        return csr.distancesFrom(sources.stream().mapToInt(this::indexOf).toArray(), withPredecessors);
+    }
+
+    int indexOf(String name) {
+        StationIndex stations = this.getStations();
+        int index = stations == null ? -1 : stations.indexOf(name);
+        if (index < 0) {
+            throw new IllegalArgumentException("No such vertex with name %s".formatted(name));
+        }
+        return index;
+    }
+
+    private boolean updateShortestDistance(Vertex neighbor, Edge edge) {
+        double newDistance = neighbor.getDistance() + edge.cost();
+        if (newDistance < edge.target().getDistance()) {
+            edge.target().setDistance(newDistance);
+            edge.target().setPrevious(neighbor);
+            return true;
+        }
+        return false;
+    }
+}
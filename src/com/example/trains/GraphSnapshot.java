@@ -0,0 +1,201 @@
+package com.example.trains;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+
+import static java.nio.channels.FileChannel.MapMode.READ_ONLY;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Binary snapshot of a {@link CsrGraph}, little-endian:
+ * <pre>
+ * int magic, int version, int vertexCount, int edgeCount, int nameBytes
+ * int[vertexCount + 1] name offsets, byte[nameBytes] UTF-8 names, padding to 8 bytes
+ * int[vertexCount + 1] edge offsets, int[edgeCount] targets, padding to 8 bytes, double[edgeCount] costs
+ * </pre>
+ * Sections are memory-mapped and bulk-copied into arrays when read.
+ */
+final class GraphSnapshot {
+
+    static final int MAGIC = 0x54524E53;
+    static final int VERSION = 1;
+
+    private static final int HEADER_SIZE = 5 * Integer.BYTES;
+    private static final int CHUNK_SIZE = 1 << 30;
+
+    private GraphSnapshot() {}
+
+    static void write(CsrGraph graph, Path path) throws IOException {
+        int vertexCount = graph.vertexCount();
+        byte[][] names = new byte[vertexCount][];
+        int[] nameOffsets = new int[vertexCount + 1];
+        for (int i = 0; i < vertexCount; i++) {
+            names[i] = graph.name(i).getBytes(UTF_8);
+            nameOffsets[i + 1] = Math.addExact(nameOffsets[i], names[i].length);
+        }
+        int edgeCount = graph.edgeCount();
+        try (FileChannel channel = FileChannel.open(path, CREATE, WRITE, TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocate(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putInt(MAGIC).putInt(VERSION).putInt(vertexCount).putInt(edgeCount).putInt(nameOffsets[vertexCount]);
+            for (int offset : nameOffsets) {
+                putInt(channel, buffer, offset);
+            }
+            for (byte[] name : names) {
+                for (byte b : name) {
+                    if (!buffer.hasRemaining()) {
+                        drain(channel, buffer);
+                    }
+                    buffer.put(b);
+                }
+            }
+            long position = HEADER_SIZE + (long) Integer.BYTES * nameOffsets.length + nameOffsets[vertexCount];
+            pad(channel, buffer, position);
+            for (int i = 0; i < vertexCount; i++) {
+                putInt(channel, buffer, graph.firstEdge(i));
+            }
+            putInt(channel, buffer, edgeCount);
+            for (int edge = 0; edge < edgeCount; edge++) {
+                putInt(channel, buffer, graph.target(edge));
+            }
+            position = align(position) + (long) Integer.BYTES * (vertexCount + 1 + edgeCount);
+            pad(channel, buffer, position);
+            for (int edge = 0; edge < edgeCount; edge++) {
+                if (buffer.remaining() < Double.BYTES) {
+                    drain(channel, buffer);
+                }
+                buffer.putDouble(graph.cost(edge));
+            }
+            drain(channel, buffer);
+        }
+    }
+
+    static CsrGraph read(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, READ)) {
+            ByteBuffer header = channel.map(READ_ONLY, 0, HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            if (header.getInt() != MAGIC) {
+                throw new IOException("%s is not a graph snapshot".formatted(path));
+            }
+            int version = header.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported graph snapshot version %d".formatted(version));
+            }
+            int vertexCount = header.getInt();
+            int edgeCount = header.getInt();
+            int nameBytes = header.getInt();
+            if (vertexCount < 0 || vertexCount == Integer.MAX_VALUE || edgeCount < 0 || nameBytes < 0) {
+                throw new IOException("Corrupt graph snapshot %s: invalid section size".formatted(path));
+            }
+            // Checked before allocating, so that a corrupt header cannot ask for arrays the file cannot fill.
+            long end = align(HEADER_SIZE + (long) Integer.BYTES * (vertexCount + 1L) + nameBytes)
+                    + (long) Integer.BYTES * (vertexCount + 1L + edgeCount);
+            end = align(end) + (long) Double.BYTES * edgeCount;
+            if (end > channel.size()) {
+                throw new IOException("Corrupt graph snapshot %s: expected %d bytes but the file has %d"
+                        .formatted(path, end, channel.size()));
+            }
+            long position = HEADER_SIZE;
+            int[] nameOffsets = new int[vertexCount + 1];
+            position = readInts(channel, position, nameOffsets);
+            checkOffsets(path, "name", nameOffsets, nameBytes);
+            MappedByteBuffer blob = channel.map(READ_ONLY, position, nameBytes);
+            String[] names = new String[vertexCount];
+            byte[] bytes = new byte[nameBytes];
+            blob.get(bytes);
+            for (int i = 0; i < vertexCount; i++) {
+                names[i] = new String(bytes, nameOffsets[i], nameOffsets[i + 1] - nameOffsets[i], UTF_8);
+            }
+            position = align(position + nameBytes);
+            int[] offsets = new int[vertexCount + 1];
+            int[] targets = new int[edgeCount];
+            double[] costs = new double[edgeCount];
+            position = readInts(channel, position, offsets);
+            position = align(readInts(channel, position, targets));
+            checkOffsets(path, "edge", offsets, edgeCount);
+            for (int edge = 0; edge < edgeCount; edge++) {
+                if (targets[edge] < 0 || targets[edge] >= vertexCount) {
+                    throw new IOException("Corrupt graph snapshot %s: edge %d targets vertex %d of %d"
+                            .formatted(path, edge, targets[edge], vertexCount));
+                }
+            }
+            readDoubles(channel, position, costs);
+            return new CsrGraph(names, offsets, targets, costs);
+        }
+    }
+
+    /**
+     * Checks that offsets start at zero, never decrease and end at {@code total}.
+     */
+    private static void checkOffsets(Path path, String section, int[] offsets, int total) throws IOException {
+        if (offsets[0] != 0 || offsets[offsets.length - 1] != total) {
+            throw new IOException("Corrupt graph snapshot %s: %s offsets do not span %d entries"
+                    .formatted(path, section, total));
+        }
+        for (int i = 1; i < offsets.length; i++) {
+            if (offsets[i] < offsets[i - 1]) {
+                throw new IOException("Corrupt graph snapshot %s: %s offsets decrease at vertex %d"
+                        .formatted(path, section, i - 1));
+            }
+        }
+    }
+
+    private static long align(long position) {
+        return (position + 7) & ~7L;
+    }
+
+    private static long readInts(FileChannel channel, long position, int[] values) throws IOException {
+        int chunk = CHUNK_SIZE / Integer.BYTES;
+        for (int from = 0; from < values.length; from += chunk) {
+            int length = Math.min(chunk, values.length - from);
+            channel.map(READ_ONLY, position, (long) length * Integer.BYTES)
+                    .order(ByteOrder.LITTLE_ENDIAN)
+                    .asIntBuffer()
+                    .get(values, from, length);
+            position += (long) length * Integer.BYTES;
+        }
+        return position;
+    }
+
+    private static void readDoubles(FileChannel channel, long position, double[] values) throws IOException {
+        int chunk = CHUNK_SIZE / Double.BYTES;
+        for (int from = 0; from < values.length; from += chunk) {
+            int length = Math.min(chunk, values.length - from);
+            channel.map(READ_ONLY, position, (long) length * Double.BYTES)
+                    .order(ByteOrder.LITTLE_ENDIAN)
+                    .asDoubleBuffer()
+                    .get(values, from, length);
+            position += (long) length * Double.BYTES;
+        }
+    }
+
+    private static void putInt(FileChannel channel, ByteBuffer buffer, int value) throws IOException {
+        if (buffer.remaining() < Integer.BYTES) {
+            drain(channel, buffer);
+        }
+        buffer.putInt(value);
+    }
+
+    private static void pad(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        for (long i = position; i < align(position); i++) {
+            if (!buffer.hasRemaining()) {
+                drain(channel, buffer);
+            }
+            buffer.put((byte) 0);
+        }
+    }
+
+    private static void drain(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.trains;
+
+import static java.lang.Math.asin;
+import static java.lang.Math.cos;
+import static java.lang.Math.sin;
+import static java.lang.Math.sqrt;
+import static java.lang.Math.toRadians;
+
+/**
+ * Great-circle distance divided by the fastest possible speed, in cost units. Vertices without
+ * coordinates get a bound of zero.
+ */
+public final class GreatCircleHeuristic implements Heuristic {
+
+    private static final double EARTH_RADIUS_KM = 6371.0;
+
+    private final Coordinates coordinates;
+    private final double maxSpeed;
+
+    public GreatCircleHeuristic(Coordinates coordinates, double maxSpeed) {
+        if (!(maxSpeed > 0)) {
+            throw new IllegalArgumentException("Maximum speed must be positive, got %s".formatted(maxSpeed));
+        }
+        this.coordinates = coordinates;
+        this.maxSpeed = maxSpeed;
+    }
+
+    @Override
+    public double estimate(int vertex, int target) {
+        if (!this.coordinates.has(vertex) || !this.coordinates.has(target)) {
+            return 0;
+        }
+        return distanceKm(this.coordinates, vertex, target) / this.maxSpeed;
+    }
+
+    static double distanceKm(Coordinates coordinates, int from, int to) {
+        double fromLatitude = toRadians(coordinates.latitude(from));
+        double toLatitude = toRadians(coordinates.latitude(to));
+        double latitudeDelta = sin((toLatitude - fromLatitude) / 2);
+        double longitudeDelta = sin(toRadians(coordinates.longitude(to) - coordinates.longitude(from)) / 2);
+        double a = latitudeDelta * latitudeDelta + cos(fromLatitude) * cos(toLatitude) * longitudeDelta * longitudeDelta;
+        return 2 * EARTH_RADIUS_KM * asin(sqrt(Math.min(1, a)));
+    }
+}
@@ -0,0 +1,13 @@
+package com.example.trains;
+
+/**
+ * Lower bound on the cost of reaching the target from a vertex. A* only returns exact routes when the
+ * bound never overestimates.
+ */
+@FunctionalInterface
+public interface Heuristic {
+
+    Heuristic NONE = (vertex, target) -> 0;
+
+    double estimate(int vertex, int target);
+}
@@ -0,0 +1,131 @@
+package com.example.trains;
+
+import java.util.Arrays;
+
+final class IndexedHeap {
+
+    private final int[] heap;
+    private final int[] positions;
+    private final double[] keys;
+    private int size;
+    private int pushes;
+
+    IndexedHeap(int capacity) {
+        this.heap = new int[capacity];
+        this.positions = new int[capacity];
+        this.keys = new double[capacity];
+        Arrays.fill(this.positions, -1);
+    }
+
+    boolean isEmpty() {
+        return this.size == 0;
+    }
+
+    int size() {
+        return this.size;
+    }
+
+    boolean contains(int item) {
+        return this.positions[item] >= 0;
+    }
+
+    int peek() {
+        return this.heap[0];
+    }
+
+    double peekKey() {
+        return this.keys[this.heap[0]];
+    }
+
+    /**
+     * Inserts the item, or lowers its key if it is already queued with a greater one.
+     */
+    void push(int item, double key) {
+        this.pushes++;
+        int position = this.positions[item];
+        if (position < 0) {
+            position = this.size++;
+            this.heap[position] = item;
+            this.positions[item] = position;
+        } else if (key >= this.keys[item]) {
+            return;
+        }
+        this.keys[item] = key;
+        this.siftUp(position);
+    }
+
+    int pop() {
+        int top = this.heap[0];
+        int last = this.heap[--this.size];
+        this.positions[top] = -1;
+        if (this.size > 0) {
+            this.heap[0] = last;
+            this.positions[last] = 0;
+            this.siftDown(0);
+        }
+        return top;
+    }
+
+    /**
+     * Returns the number of pushes since the last {@link #resetPushes()}, including ignored ones.
+     */
+    int pushes() {
+        return this.pushes;
+    }
+
+    void resetPushes() {
+        this.pushes = 0;
+    }
+
+    void clear() {
+        for (int i = 0; i < this.size; i++) {
+            this.positions[this.heap[i]] = -1;
+        }
+        this.size = 0;
+    }
+
+    // Ties are broken by item so that settle order matches a first-minimum linear scan.
+    private boolean less(int a, int b) {
+        double ka = this.keys[a];
+        double kb = this.keys[b];
+        return ka < kb || (ka == kb && a < b);
+    }
+
+    private void siftUp(int position) {
+        int item = this.heap[position];
+        while (position > 0) {
+            int parent = (position - 1) >>> 1;
+            int other = this.heap[parent];
+            if (!this.less(item, other)) {
+                break;
+            }
+            this.heap[position] = other;
+            this.positions[other] = position;
+            position = parent;
+        }
+        this.heap[position] = item;
+        this.positions[item] = position;
+    }
+
+    private void siftDown(int position) {
+        int item = this.heap[position];
+        while (true) {
+            int child = 2 * position + 1;
+            if (child >= this.size) {
+                break;
+            }
+            if (child + 1 < this.size && this.less(this.heap[child + 1], this.heap[child])) {
+                child++;
+            }
+            int other = this.heap[child];
+            if (!this.less(other, item)) {
+                break;
+            }
+            this.heap[position] = other;
+            this.positions[other] = position;
+            position = child;
+        }
+        this.heap[position] = item;
+        this.positions[item] = position;
+    }
+}
@@ -0,0 +1,173 @@
+package com.example.trains;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+import static java.lang.Double.POSITIVE_INFINITY;
+
+/**
+ * ALT lower bounds: distances from and to a few landmark vertices combined through the triangle
+ * inequality. Distances are stored as floats, vertex-major, and widened by one ulp when read so that
+ * rounding never makes a bound overestimate.
+ */
+public final class Landmarks implements Heuristic {
+
+    private static final int MAGIC = 0x414C5431;
+    private static final int VERSION = 1;
+
+    private final int size;
+    private final int[] landmarks;
+    private final float[] fromLandmark;
+    private final float[] toLandmark;
+
+    private Landmarks(int size, int[] landmarks, float[] fromLandmark, float[] toLandmark) {
+        this.size = size;
+        this.landmarks = landmarks;
+        this.fromLandmark = fromLandmark;
+        this.toLandmark = toLandmark;
+    }
+
+    /**
+     * Picks landmarks by farthest-point selection, starting from the vertex farthest from vertex 0,
+     * then computes their forward and backward distance tables in parallel. Vertices no landmark reaches
+     * are picked first, so that every component gets a landmark.
+     */
+    public static Landmarks select(CsrGraph graph, int count) {
+        int size = graph.vertexCount();
+        count = Math.min(count, size);
+        int[] landmarks = new int[count];
+        double[] nearest = new double[size];
+        Arrays.fill(nearest, POSITIVE_INFINITY);
+        int candidate = farthest(graph.shortestPaths(0).distances(), nearest);
+        for (int i = 0; i < count; i++) {
+            landmarks[i] = candidate;
+            double[] distances = graph.shortestPaths(candidate).distances();
+            for (int vertex = 0; vertex < size; vertex++) {
+                if (distances[vertex] < nearest[vertex]) {
+                    nearest[vertex] = distances[vertex];
+                }
+            }
+            nearest[candidate] = 0;
+            candidate = farthest(nearest, nearest);
+        }
+        return compute(graph, landmarks);
+    }
+
+    public static Landmarks compute(CsrGraph graph, int[] landmarks) {
+        int size = graph.vertexCount();
+        int count = landmarks.length;
+        float[] fromLandmark = new float[size * count];
+        float[] toLandmark = new float[size * count];
+        CsrGraph reverse = graph.reverse();
+        IntStream.range(0, 2 * count).parallel().forEach(task -> {
+            int i = task % count;
+            boolean forward = task < count;
+            double[] distances = (forward ? graph : reverse).shortestPaths(landmarks[i]).distances();
+            float[] table = forward ? fromLandmark : toLandmark;
+            for (int vertex = 0; vertex < size; vertex++) {
+                table[vertex * count + i] = (float) distances[vertex];
+            }
+        });
+        return new Landmarks(size, landmarks.clone(), fromLandmark, toLandmark);
+    }
+
+    // Farthest entry among vertices not yet covered by a landmark, the first unreached one if any.
+    private static int farthest(double[] distances, double[] nearest) {
+        int best = 0;
+        double bestDistance = -1;
+        for (int vertex = 0; vertex < distances.length && bestDistance != POSITIVE_INFINITY; vertex++) {
+            double distance = distances[vertex];
+            if (nearest[vertex] != 0 && distance > bestDistance) {
+                best = vertex;
+                bestDistance = distance;
+            }
+        }
+        return best;
+    }
+
+    public int[] landmarks() {
+        return this.landmarks.clone();
+    }
+
+    public int vertexCount() {
+        return this.size;
+    }
+
+    @Override
+    public double estimate(int vertex, int target) {
+        int count = this.landmarks.length;
+        int v = vertex * count;
+        int t = target * count;
+        double bound = 0;
+        for (int i = 0; i < count; i++) {
+            double forward = lower(this.fromLandmark[t + i]) - upper(this.fromLandmark[v + i]);
+            double backward = lower(this.toLandmark[v + i]) - upper(this.toLandmark[t + i]);
+            if (forward > bound) {
+                bound = forward;
+            }
+            if (backward > bound) {
+                bound = backward;
+            }
+        }
+        return bound;
+    }
+
+    // An infinite distance stays infinite, so unreachable targets get an infinite bound.
+    private static double lower(float distance) {
+        return distance == Float.POSITIVE_INFINITY ? POSITIVE_INFINITY : Math.nextDown(distance);
+    }
+
+    private static double upper(float distance) {
+        return Math.nextUp(distance);
+    }
+
+    public void writeTo(Path path) throws IOException {
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)))) {
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            output.writeInt(this.vertexCount());
+            output.writeInt(this.landmarks.length);
+            for (int landmark : this.landmarks) {
+                output.writeInt(landmark);
+            }
+            for (float distance : this.fromLandmark) {
+                output.writeFloat(distance);
+            }
+            for (float distance : this.toLandmark) {
+                output.writeFloat(distance);
+            }
+        }
+    }
+
+    public static Landmarks readFrom(Path path, CsrGraph graph) throws IOException {
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (input.readInt() != MAGIC || input.readInt() != VERSION) {
+                throw new IOException("%s is not a supported landmark table".formatted(path));
+            }
+            int size = input.readInt();
+            if (size != graph.vertexCount()) {
+                throw new IOException("Landmark table has %d vertices, graph has %d".formatted(size, graph.vertexCount()));
+            }
+            int[] landmarks = new int[input.readInt()];
+            for (int i = 0; i < landmarks.length; i++) {
+                landmarks[i] = input.readInt();
+            }
+            float[] fromLandmark = new float[size * landmarks.length];
+            float[] toLandmark = new float[fromLandmark.length];
+            for (int i = 0; i < fromLandmark.length; i++) {
+                fromLandmark[i] = input.readFloat();
+            }
+            for (int i = 0; i < toLandmark.length; i++) {
+                toLandmark[i] = input.readFloat();
+            }
+            return new Landmarks(size, landmarks, fromLandmark, toLandmark);
+        }
+    }
+}
@@ -0,0 +1,285 @@
+package com.example.trains;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.SplittableRandom;
+
+/**
+ * Writes random networks in the format read by {@link Graph#readFrom(String)}. Edges are produced
+ * one source vertex at a time, so memory use does not depend on the size of the output, apart from
+ * the links towards stations not generated yet that are remembered when {@code symmetry} is above 0.
+ * A station never links twice to the same target.
+ *
+ * @param vertices     number of stations, named {@code Station0} onwards
+ * @param degrees      how the out-degree of each station is drawn
+ * @param minDegree    smallest out-degree
+ * @param maxDegree    largest out-degree
+ * @param exponent     tail exponent of the {@link Degrees#POWER_LAW} distribution, above 1
+ * @param window       targets are drawn within this many indices of the source, 0 for anywhere
+ * @param symmetry     probability that a link is also written in the opposite direction
+ * @param minCost      smallest edge cost
+ * @param maxCost      largest edge cost, at most {@value #MAX_COST}
+ * @param seed         seed of the random generator; equal parameters give identical files
+ */
+public record NetworkGenerator(int vertices, Degrees degrees, int minDegree, int maxDegree,
+                               double exponent, int window, double symmetry,
+                               double minCost, double maxCost, long seed) {
+
+    public enum Degrees {
+        FIXED,
+        UNIFORM,
+        POWER_LAW
+    }
+
+    @FunctionalInterface
+    public interface EdgeSink {
+        void edge(int source, int target, double cost) throws IOException;
+    }
+
+    static final double MAX_COST = 1e12;
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    public NetworkGenerator {
+        if (vertices < 1) {
+            throw new IllegalArgumentException("At least one vertex is required");
+        }
+        if (minDegree < 0 || maxDegree < minDegree) {
+            throw new IllegalArgumentException("Invalid degree range %d..%d".formatted(minDegree, maxDegree));
+        }
+        if (degrees == Degrees.POWER_LAW && !(exponent > 1)) {
+            throw new IllegalArgumentException("Power-law exponent must be above 1");
+        }
+        if (window < 0 || !(symmetry >= 0 && symmetry <= 1)) {
+            throw new IllegalArgumentException("Invalid window or symmetry");
+        }
+        if (!(minCost >= 0 && maxCost >= minCost && maxCost <= MAX_COST)) {
+            throw new IllegalArgumentException("Invalid cost range %s..%s".formatted(minCost, maxCost));
+        }
+    }
+
+    public static NetworkGenerator withDefaults(int vertices) {
+        return new NetworkGenerator(vertices, Degrees.UNIFORM, 1, 4, 2.5, 0, 0.5, 0.1, 10.0, 42L);
+    }
+
+    /**
+     * Parses {@code key=value} options on top of {@link #withDefaults(int)}. Keys are
+     * {@code vertices}, {@code degrees} ({@code fixed}, {@code uniform} or {@code power_law}),
+     * {@code degree} ({@code min:max} or a single value), {@code exponent}, {@code window},
+     * {@code symmetry}, {@code cost} ({@code min:max}) and {@code seed}.
+     */
+    public static NetworkGenerator parse(String... options) {
+        NetworkGenerator generator = withDefaults(1000);
+        int vertices = generator.vertices;
+        Degrees degrees = generator.degrees;
+        int minDegree = generator.minDegree;
+        int maxDegree = generator.maxDegree;
+        double exponent = generator.exponent;
+        int window = generator.window;
+        double symmetry = generator.symmetry;
+        double minCost = generator.minCost;
+        double maxCost = generator.maxCost;
+        long seed = generator.seed;
+        for (String option : options) {
+            int separator = option.indexOf('=');
+            if (separator < 0) {
+                throw new IllegalArgumentException("Expected key=value but got %s".formatted(option));
+            }
+            String value = option.substring(separator + 1).trim();
+            String[] range = value.split(":", 2);
+            switch (option.substring(0, separator).trim()) {
+                case "vertices" -> vertices = Integer.parseInt(value);
+                case "degrees" -> degrees = Degrees.valueOf(value.toUpperCase(Locale.ROOT));
+                case "degree" -> {
+                    minDegree = Integer.parseInt(range[0]);
+                    maxDegree = Integer.parseInt(range[range.length - 1]);
+                }
+                case "exponent" -> exponent = Double.parseDouble(value);
+                case "window" -> window = Integer.parseInt(value);
+                case "symmetry" -> symmetry = Double.parseDouble(value);
+                case "cost" -> {
+                    minCost = Double.parseDouble(range[0]);
+                    maxCost = Double.parseDouble(range[range.length - 1]);
+                }
+                case "seed" -> seed = Long.parseLong(value);
+                default -> throw new IllegalArgumentException("Unknown option %s".formatted(option));
+            }
+        }
+        return new NetworkGenerator(vertices, degrees, minDegree, maxDegree, exponent, window, symmetry,
+                minCost, maxCost, seed);
+    }
+
+    public void writeTo(Path file) {
+        try (Writer writer = new BufferedWriter(
+                new OutputStreamWriter(Files.newOutputStream(file), StandardCharsets.UTF_8), BUFFER_SIZE)) {
+            this.writeTo(writer);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    public void writeTo(Writer writer) throws IOException {
+        StringBuilder line = new StringBuilder(64);
+        for (int i = 0; i < this.vertices; i++) {
+            line.setLength(0);
+            line.append("Station").append(i).append('\n');
+            writer.append(line);
+        }
+        writer.write('\n');
+        this.generate((source, target, cost) -> {
+            line.setLength(0);
+            line.append(source).append(", ").append(target).append(", ");
+            appendCost(line, cost);
+            writer.append(line.append('\n'));
+        });
+    }
+
+    /**
+     * Emits the edges in file order. Costs are rounded to three decimals so the written file
+     * and the emitted values agree exactly. When links can be mirrored, a station does not draw the
+     * earlier stations that drew it, so that neither the link nor its mirror is written twice.
+     */
+    public void generate(EdgeSink sink) throws IOException {
+        SplittableRandom random = new SplittableRandom(this.seed);
+        int candidates = this.window == 0 ? this.vertices - 1 : Math.min(this.vertices - 1, 2 * this.window);
+        int[] chosen = new int[Math.min(this.maxDegree, candidates)];
+        Backlinks drawnBy = this.symmetry > 0 ? new Backlinks(this.vertices) : null;
+        for (int source = 0; source < this.vertices; source++) {
+            int available = drawnBy == null ? candidates : candidates - drawnBy.count(source);
+            int degree = Math.min(this.degree(random), Math.min(chosen.length, available));
+            int links = 0;
+            while (links < degree) {
+                int target = this.target(source, random);
+                if (target != source && !contains(chosen, links, target)
+                        && (drawnBy == null || !drawnBy.contains(source, target))) {
+                    chosen[links++] = target;
+                }
+            }
+            for (int k = 0; k < links; k++) {
+                double cost = Math.round(random.nextDouble(this.minCost, Math.nextUp(this.maxCost)) * 1000) / 1000.0;
+                sink.edge(source, chosen[k], cost);
+                if (random.nextDouble() < this.symmetry) {
+                    sink.edge(chosen[k], source, cost);
+                }
+                if (drawnBy != null && chosen[k] > source) {
+                    drawnBy.add(chosen[k], source);
+                }
+            }
+            if (drawnBy != null) {
+                drawnBy.clear(source);
+            }
+        }
+    }
+
+    private int degree(SplittableRandom random) {
+        return switch (this.degrees) {
+            case FIXED -> this.maxDegree;
+            case UNIFORM -> random.nextInt(this.minDegree, this.maxDegree + 1);
+            case POWER_LAW -> {
+                // Discrete Pareto tail starting at minDegree, by inversion.
+                double scale = Math.max(1, this.minDegree);
+                double degree = scale * Math.pow(1 - random.nextDouble(), -1 / (this.exponent - 1));
+                yield (int) Math.min(this.maxDegree, Math.max(this.minDegree, Math.floor(degree)));
+            }
+        };
+    }
+
+    private int target(int source, SplittableRandom random) {
+        if (this.window == 0 || 2 * this.window >= this.vertices - 1) {
+            return random.nextInt(this.vertices);
+        }
+        int offset = random.nextInt(1, this.window + 1);
+        return Math.floorMod(random.nextBoolean() ? source + offset : source - offset, this.vertices);
+    }
+
+    /**
+     * For each station not generated yet, the earlier stations that drew it, as linked lists threaded
+     * through arrays whose slots are reused once the station is generated.
+     */
+    private static final class Backlinks {
+
+        private final int[] heads;
+        private int[] sources = new int[64];
+        private int[] next = new int[64];
+        private int size;
+        private int free = -1;
+
+        Backlinks(int vertices) {
+            this.heads = new int[vertices];
+            Arrays.fill(this.heads, -1);
+        }
+
+        void add(int target, int source) {
+            int slot = this.free;
+            if (slot >= 0) {
+                this.free = this.next[slot];
+            } else {
+                if (this.size == this.sources.length) {
+                    this.sources = Arrays.copyOf(this.sources, 2 * this.size);
+                    this.next = Arrays.copyOf(this.next, 2 * this.size);
+                }
+                slot = this.size++;
+            }
+            this.sources[slot] = source;
+            this.next[slot] = this.heads[target];
+            this.heads[target] = slot;
+        }
+
+        boolean contains(int target, int source) {
+            for (int slot = this.heads[target]; slot >= 0; slot = this.next[slot]) {
+                if (this.sources[slot] == source) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        int count(int target) {
+            int count = 0;
+            for (int slot = this.heads[target]; slot >= 0; slot = this.next[slot]) {
+                count++;
+            }
+            return count;
+        }
+
+        void clear(int target) {
+            int slot = this.heads[target];
+            while (slot >= 0) {
+                int following = this.next[slot];
+                this.next[slot] = this.free;
+                this.free = slot;
+                slot = following;
+            }
+            this.heads[target] = -1;
+        }
+    }
+
+    private static boolean contains(int[] values, int length, int value) {
+        for (int i = 0; i < length; i++) {
+            if (values[i] == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void appendCost(StringBuilder line, double cost) {
+        long thousandths = Math.round(cost * 1000);
+        line.append(thousandths / 1000).append('.');
+        long fraction = thousandths % 1000;
+        if (fraction < 100) {
+            line.append('0');
+        }
+        if (fraction < 10) {
+            line.append('0');
+        }
+        line.append(fraction);
+    }
+}
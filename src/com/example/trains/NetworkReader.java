@@ -0,0 +1,203 @@
+package com.example.trains;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Single-pass reader for the network text format. Edge lines are parsed straight from the byte buffer
+ * into primitive arrays; only station names are decoded into strings.
+ */
+final class NetworkReader {
+
+    private static final int BUFFER_SIZE = 1 << 20;
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private final List<String> names = new ArrayList<>();
+    private final EdgeList edges = new EdgeList();
+    private boolean readingNames = true;
+
+    private NetworkReader() {}
+
+    static CsrGraph read(Path path) throws IOException {
+        NetworkReader reader = new NetworkReader();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            reader.scan(channel);
+        }
+        return CsrGraph.of(reader.names.toArray(String[]::new), reader.edges);
+    }
+
+    private void scan(FileChannel channel) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        int start = 0;
+        int position = 0;
+        boolean skipLineFeed = false;
+        boolean endOfInput = false;
+        while (true) {
+            byte[] bytes = buffer.array();
+            int limit = buffer.position();
+            while (position < limit) {
+                byte b = bytes[position];
+                if (b == '\n' || b == '\r') {
+                    if (skipLineFeed && b == '\n' && position == start) {
+                        start = ++position;
+                        skipLineFeed = false;
+                        continue;
+                    }
+                    this.processLine(bytes, start, position);
+                    skipLineFeed = b == '\r';
+                    start = ++position;
+                } else {
+                    skipLineFeed = false;
+                    position++;
+                }
+            }
+            if (endOfInput) {
+                if (start < limit) {
+                    this.processLine(bytes, start, limit);
+                }
+                return;
+            }
+            if (start == 0 && limit == bytes.length) {
+                buffer = ByteBuffer.wrap(Arrays.copyOf(bytes, bytes.length * 2)).position(limit);
+            } else {
+                buffer.flip().position(start);
+                buffer.compact();
+                position -= start;
+                start = 0;
+            }
+            endOfInput = channel.read(buffer) < 0;
+        }
+    }
+
+    private void processLine(byte[] bytes, int from, int to) {
+        if (this.readingNames) {
+            String name = new String(bytes, from, to - from, UTF_8);
+            if (name.isBlank()) {
+                this.readingNames = false;
+            } else {
+                this.names.add(name);
+            }
+            return;
+        }
+        int first = indexOf(bytes, ',', from, to);
+        int second = first < 0 ? -1 : indexOf(bytes, ',', first + 1, to);
+        if (second < 0) {
+            return;
+        }
+        int third = indexOf(bytes, ',', second + 1, to);
+        int source = parseIndex(bytes, from, first);
+        int target = parseIndex(bytes, first + 1, second);
+        if (source < 0 || target < 0 || source >= this.names.size() || target >= this.names.size()) {
+            return;
+        }
+        double cost = parseCost(bytes, second + 1, third < 0 ? to : third);
+        if (!Double.isNaN(cost)) {
+            this.edges.add(source, target, cost);
+        }
+    }
+
+    private static int indexOf(byte[] bytes, char c, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (bytes[i] == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int trimStart(byte[] bytes, int from, int to) {
+        while (from < to && (bytes[from] & 0xff) <= ' ') {
+            from++;
+        }
+        return from;
+    }
+
+    private static int trimEnd(byte[] bytes, int from, int to) {
+        while (to > from && (bytes[to - 1] & 0xff) <= ' ') {
+            to--;
+        }
+        return to;
+    }
+
+    // Returns -1 when the field is not a valid int, mirroring the lines Integer.parseInt rejects.
+    private static int parseIndex(byte[] bytes, int from, int to) {
+        from = trimStart(bytes, from, to);
+        to = trimEnd(bytes, from, to);
+        boolean negative = false;
+        if (from < to && (bytes[from] == '+' || bytes[from] == '-')) {
+            negative = bytes[from++] == '-';
+        }
+        if (from == to) {
+            return -1;
+        }
+        long value = 0;
+        for (int i = from; i < to; i++) {
+            int digit = bytes[i] - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+            if (value > Integer.MAX_VALUE) {
+                return -1;
+            }
+        }
+        return negative && value != 0 ? -1 : (int) value;
+    }
+
+    // Plain decimals are parsed exactly without allocating; anything else goes through Double.parseDouble.
+    // Unparseable fields yield NaN and the line is skipped.
+    private static double parseCost(byte[] bytes, int from, int to) {
+        from = trimStart(bytes, from, to);
+        to = trimEnd(bytes, from, to);
+        int i = from;
+        boolean negative = false;
+        if (i < to && (bytes[i] == '+' || bytes[i] == '-')) {
+            negative = bytes[i++] == '-';
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int fractionDigits = 0;
+        boolean fraction = false;
+        for (; i < to; i++) {
+            byte b = bytes[i];
+            if (b == '.' && !fraction) {
+                fraction = true;
+            } else if (b >= '0' && b <= '9') {
+                mantissa = mantissa * 10 + (b - '0');
+                digits++;
+                if (fraction) {
+                    fractionDigits++;
+                }
+            } else {
+                return slowParseCost(bytes, from, to);
+            }
+        }
+        if (digits == 0) {
+            return Double.NaN;
+        }
+        if (digits > 15 || fractionDigits >= POWERS_OF_TEN.length) {
+            return slowParseCost(bytes, from, to);
+        }
+        double value = mantissa / POWERS_OF_TEN[fractionDigits];
+        return negative ? -value : value;
+    }
+
+    private static double slowParseCost(byte[] bytes, int from, int to) {
+        try {
+            return Double.parseDouble(new String(bytes, from, to - from, UTF_8));
+        } catch (NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.example.trains;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * Process-wide counters and latency histograms for loads and searches, off by default. Searches count
+ * in locals and report once when they finish, so the cost per query is a clock read and, when enabled,
+ * a few atomic additions. Each report is also a JFR event when a recording asks for it.
+ */
+public final class QueryMetrics {
+
+    public enum Kind {
+        LOAD,
+        DISTANCES_FROM,
+        SHORTEST_PATHS,
+        ROUTE,
+        A_STAR,
+        BIDIRECTIONAL,
+        HIERARCHY,
+        OVERLAY,
+        SERVER_ERROR
+    }
+
+    /**
+     * Totals for one kind of operation. For loads, vertices and edges are those read; for searches, the
+     * vertices settled and the edges relaxed. Server errors only count connections and reloads that
+     * failed. Latencies are in nanoseconds.
+     */
+    public record Snapshot(Kind kind, long count, long vertices, long edges, long heapPushes,
+                           long totalNanos, long p50, long p90, long p99, long max) {
+
+        public double meanNanos() {
+            return this.count == 0 ? 0 : (double) this.totalNanos / this.count;
+        }
+    }
+
+    @Name("com.example.trains.Query")
+    @Label("Query")
+    @Category("Trains")
+    static class QueryEvent extends Event {
+        @Label("Kind")
+        String kind;
+        @Label("Vertices")
+        long vertices;
+        @Label("Edges")
+        long edges;
+        @Label("Heap Pushes")
+        long heapPushes;
+        @Label("Elapsed")
+        @Timespan(Timespan.NANOSECONDS)
+        long elapsed;
+    }
+
+    private static final class Counters {
+        final LongAdder count = new LongAdder();
+        final LongAdder vertices = new LongAdder();
+        final LongAdder edges = new LongAdder();
+        final LongAdder heapPushes = new LongAdder();
+        final LongAdder totalNanos = new LongAdder();
+        final LatencyHistogram latencies = new LatencyHistogram();
+    }
+
+    private static final Counters[] COUNTERS = new Counters[Kind.values().length];
+    private static volatile boolean enabled;
+
+    static {
+        for (int i = 0; i < COUNTERS.length; i++) {
+            COUNTERS[i] = new Counters();
+        }
+    }
+
+    private QueryMetrics() {}
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    public static void setEnabled(boolean enabled) {
+        QueryMetrics.enabled = enabled;
+    }
+
+    public static void reset() {
+        for (Counters counters : COUNTERS) {
+            counters.count.reset();
+            counters.vertices.reset();
+            counters.edges.reset();
+            counters.heapPushes.reset();
+            counters.totalNanos.reset();
+            counters.latencies.reset();
+        }
+    }
+
+    static long start() {
+        return System.nanoTime();
+    }
+
+    static void record(Kind kind, long start, long vertices, long edges, long heapPushes) {
+        QueryEvent event = new QueryEvent();
+        if (!enabled && !event.isEnabled()) {
+            return;
+        }
+        long elapsed = System.nanoTime() - start;
+        if (enabled) {
+            Counters counters = COUNTERS[kind.ordinal()];
+            counters.count.increment();
+            counters.vertices.add(vertices);
+            counters.edges.add(edges);
+            counters.heapPushes.add(heapPushes);
+            counters.totalNanos.add(elapsed);
+            counters.latencies.record(elapsed);
+        }
+        if (event.shouldCommit()) {
+            event.kind = kind.name();
+            event.vertices = vertices;
+            event.edges = edges;
+            event.heapPushes = heapPushes;
+            event.elapsed = elapsed;
+            event.commit();
+        }
+    }
+
+    /**
+     * Returns the totals of every kind of operation recorded at least once since the last reset.
+     */
+    public static List<Snapshot> snapshot() {
+        List<Snapshot> snapshots = new ArrayList<>();
+        for (Kind kind : Kind.values()) {
+            Counters counters = COUNTERS[kind.ordinal()];
+            long[] latencies = counters.latencies.counts();
+            if (counters.count.sum() > 0) {
+                snapshots.add(new Snapshot(kind, counters.count.sum(), counters.vertices.sum(),
+                        counters.edges.sum(), counters.heapPushes.sum(), counters.totalNanos.sum(),
+                        LatencyHistogram.percentile(latencies, 50), LatencyHistogram.percentile(latencies, 90),
+                        LatencyHistogram.percentile(latencies, 99), LatencyHistogram.percentile(latencies, 100)));
+            }
+        }
+        return snapshots;
+    }
+
+    public static void print(PrintStream output) {
+        output.printf("%-15s %10s %12s %12s %12s %10s %10s %10s %10s%n",
+                "operation", "count", "vertices", "edges", "pushes", "mean us", "p50 us", "p99 us", "max us");
+        for (Snapshot snapshot : snapshot()) {
+            output.printf("%-15s %10d %12d %12d %12d %10.1f %10.1f %10.1f %10.1f%n",
+                    snapshot.kind(), snapshot.count(), snapshot.vertices(), snapshot.edges(),
+                    snapshot.heapPushes(), snapshot.meanNanos() / 1e3, snapshot.p50() / 1e3,
+                    snapshot.p99() / 1e3, snapshot.max() / 1e3);
+        }
+    }
+}
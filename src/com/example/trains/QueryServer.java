@@ -0,0 +1,306 @@
+package com.example.trains;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+
+/**
+ * Answers queries over a graph loaded once, one command per line:
+ * <pre>
+ * ROUTE from, to   OK cost station, station, ...   or NONE
+ * DIST from, to    OK cost                          or NONE
+ * RELOAD           OK vertices edges
+ * QUIT             BYE, then the connection is closed
+ * </pre>
+ * Failures are answered with {@code ERROR message}. Each connection reads on its own virtual thread and
+ * is dropped after a minute without input. Commands are answered on a fixed pool of daemon threads, one
+ * per processor, so only those threads keep search buffers however many clients are connected. Queries
+ * read the current graph, which is never modified: a reload builds a new graph and swaps it in, so
+ * queries already running finish on the graph they started with.
+ */
+public final class QueryServer implements Closeable {
+
+    private static final long CACHE_BYTES = 64L << 20;
+    private static final long SETTLE_MILLIS = 250;
+    private static final int IDLE_TIMEOUT_MILLIS = 60_000;
+
+    private final Path network;
+    private final AtomicReference<Graph> graph = new AtomicReference<>();
+    private final ExecutorService searchers = Executors.newFixedThreadPool(
+            Runtime.getRuntime().availableProcessors(), Thread.ofPlatform().name("query-", 0).daemon().factory());
+    private final Set<Socket> connections = ConcurrentHashMap.newKeySet();
+    private volatile ServerSocket socket;
+    private volatile WatchService watcher;
+    private ExecutorService readers;
+    private Thread acceptor;
+
+    public QueryServer(Path network) {
+        this.network = network;
+        this.reload();
+    }
+
+    public Graph getGraph() {
+        return graph.get();
+    }
+
+    /**
+     * Loads the network file again and swaps it in. The previous graph stays in place if loading fails.
+     */
+    public Graph reload() {
+        Graph graph = new Graph();
+        graph.readFrom(this.network.toString());
+        graph.freeze();
+        graph.setCache(new ShortestPathCache(graph, CACHE_BYTES));
+        this.graph.set(graph);
+        return graph;
+    }
+
+    /**
+     * Reloads the network whenever its file is created or modified, until the server is closed. The file
+     * is only read once its size and modification time have stopped changing, so that a file still being
+     * written is not loaded half-way.
+     */
+    public void watch() {
+        Path file = this.network.toAbsolutePath();
+        try {
+            WatchService watcher = FileSystems.getDefault().newWatchService();
+            file.getParent().register(watcher, ENTRY_CREATE, ENTRY_MODIFY);
+            this.watcher = watcher;
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        Thread.ofVirtual().name("network-watcher").start(() -> {
+            try {
+                while (true) {
+                    WatchKey key = this.watcher.take();
+                    boolean changed = false;
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        changed |= file.getFileName().equals(event.context());
+                    }
+                    key.reset();
+                    if (changed && this.awaitSettled(file)) {
+                        long start = QueryMetrics.start();
+                        try {
+                            this.reload();
+                        } catch (RuntimeException e) {
+                            System.err.printf("Keeping previous network: %s%n", e.getMessage());
+                            QueryMetrics.record(QueryMetrics.Kind.SERVER_ERROR, start, 0, 0, 0);
+                        }
+                    }
+                }
+            } catch (ClosedWatchServiceException | InterruptedException ignore) {}
+        });
+    }
+
+    /**
+     * Waits until the file keeps the same size and modification time over a settle period, discarding
+     * the events it raises meanwhile.
+     *
+     * @return false if the file is gone
+     */
+    private boolean awaitSettled(Path file) throws InterruptedException {
+        BasicFileAttributes previous = null;
+        while (true) {
+            Thread.sleep(SETTLE_MILLIS);
+            for (WatchKey key = this.watcher.poll(); key != null; key = this.watcher.poll()) {
+                key.pollEvents();
+                key.reset();
+            }
+            BasicFileAttributes current;
+            try {
+                current = Files.readAttributes(file, BasicFileAttributes.class);
+            } catch (IOException e) {
+                return false;
+            }
+            if (previous != null && previous.size() == current.size()
+                    && previous.lastModifiedTime().equals(current.lastModifiedTime())) {
+                return true;
+            }
+            previous = current;
+        }
+    }
+
+    /**
+     * Accepts connections on the loopback interface in the background. Connections that fail, other than
+     * by going idle, are reported on the standard error and counted as
+     * {@link QueryMetrics.Kind#SERVER_ERROR}.
+     *
+     * @return the bound port, useful when {@code port} is 0
+     */
+    public int start(int port) {
+        try {
+            this.socket = new ServerSocket(port, 0, InetAddress.getLoopbackAddress());
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        this.readers = Executors.newVirtualThreadPerTaskExecutor();
+        this.acceptor = Thread.ofVirtual().name("query-acceptor").start(() -> {
+            try {
+                while (true) {
+                    Socket connection = this.socket.accept();
+                    this.connections.add(connection);
+                    this.readers.execute(() -> {
+                        long start = QueryMetrics.start();
+                        try (connection) {
+                            connection.setSoTimeout(IDLE_TIMEOUT_MILLIS);
+                            this.serve(connection.getInputStream(), connection.getOutputStream());
+                        } catch (SocketTimeoutException ignore) {
+                        } catch (IOException | RuntimeException e) {
+                            if (!this.socket.isClosed()) {
+                                System.err.printf("Connection from %s failed: %s%n",
+                                        connection.getRemoteSocketAddress(), e);
+                                QueryMetrics.record(QueryMetrics.Kind.SERVER_ERROR, start, 0, 0, 0);
+                            }
+                        } finally {
+                            this.connections.remove(connection);
+                        }
+                    });
+                }
+            } catch (IOException e) {
+                if (!this.socket.isClosed()) {
+                    System.err.printf("Stopped accepting connections: %s%n", e);
+                    QueryMetrics.record(QueryMetrics.Kind.SERVER_ERROR, QueryMetrics.start(), 0, 0, 0);
+                }
+            }
+        });
+        return this.socket.getLocalPort();
+    }
+
+    /**
+     * Waits until the server socket is closed.
+     */
+    public void join() throws InterruptedException {
+        this.acceptor.join();
+    }
+
+    /**
+     * Answers every line of the input until it ends or a {@code QUIT} command.
+     */
+    public void serve(InputStream input, OutputStream output) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        try (ResultWriter writer = ResultWriter.of(output)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                boolean open = this.answerOnSearcher(line, writer);
+                writer.flush();
+                if (!open) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private boolean answerOnSearcher(String line, ResultWriter writer) throws IOException {
+        Future<Boolean> answer = this.searchers.submit(() -> this.answer(line, writer));
+        try {
+            return answer.get();
+        } catch (InterruptedException e) {
+            answer.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while answering %s".formatted(line));
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    private boolean answer(String line, ResultWriter writer) {
+        line = line.strip();
+        if (line.isEmpty()) {
+            return true;
+        }
+        int space = line.indexOf(' ');
+        String command = (space < 0 ? line : line.substring(0, space)).toUpperCase(Locale.ROOT);
+        String[] stations = space < 0 ? new String[0] : line.substring(space + 1).split(",");
+        try {
+            switch (command) {
+                case "ROUTE" -> {
+                    Optional<Route> route = this.graph.get().route(station(stations, 0), station(stations, 1));
+                    if (route.isEmpty()) {
+                        writer.write("NONE");
+                    } else {
+                        writer.write("OK ").write(Double.toString(route.get().cost())).write(' ');
+                        for (int i = 0; i < route.get().stations().size(); i++) {
+                            writer.write(i == 0 ? "" : ", ").write(route.get().stations().get(i));
+                        }
+                    }
+                }
+                case "DIST" -> {
+                    Graph graph = this.graph.get();
+                    int target = graph.indexOf(station(stations, 1));
+                    double distance = graph.shortestPaths(station(stations, 0)).distanceTo(target);
+                    if (distance == Double.POSITIVE_INFINITY) {
+                        writer.write("NONE");
+                    } else {
+                        writer.write("OK ").write(Double.toString(distance));
+                    }
+                }
+                case "RELOAD" -> {
+                    CsrGraph csr = this.reload().getCsr();
+                    writer.write("OK ").write(csr.vertexCount()).write(' ').write(csr.edgeCount());
+                }
+                case "QUIT" -> {
+                    writer.write("BYE").newLine();
+                    return false;
+                }
+                default -> throw new IllegalArgumentException("Unknown command %s".formatted(command));
+            }
+        } catch (RuntimeException e) {
+            writer.write("ERROR ").write(String.valueOf(e.getMessage()));
+        }
+        writer.newLine();
+        return true;
+    }
+
+    private static String station(String[] stations, int index) {
+        if (stations.length != 2) {
+            throw new IllegalArgumentException("Expected two stations separated by a comma");
+        }
+        return stations[index].strip();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (this.socket != null) {
+            this.socket.close();
+        }
+        if (this.watcher != null) {
+            this.watcher.close();
+        }
+        for (Socket connection : this.connections) {
+            connection.close();
+        }
+        if (this.readers != null) {
+            this.readers.shutdownNow();
+        }
+        this.searchers.shutdownNow();
+    }
+}
@@ -0,0 +1,281 @@
+package com.example.trains;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Encodes text straight into a reusable byte buffer, flushed to a stream or a file channel when full.
+ * Text sent to a {@link PrintStream} is encoded with its charset when that charset is ASCII-compatible,
+ * like the console encoding; everything else, files included, is written as UTF-8.
+ * Numbers are formatted without going through {@link java.util.Formatter}; {@link #write(double, int)}
+ * prints the same digits as {@code %.Nf} with a dot as decimal separator. Not thread-safe.
+ */
+public final class ResultWriter implements Closeable, Flushable {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final long[] POWERS_OF_TEN = {
+            1L, 10L, 100L, 1_000L, 10_000L, 100_000L, 1_000_000L, 10_000_000L, 100_000_000L, 1_000_000_000L
+    };
+    // Below this many units the product value * 10^decimals is accurate to well under the tie margin.
+    private static final double FAST_LIMIT = 1e9;
+    private static final double TIE_MARGIN = 1e-6;
+    private static final byte[] LINE_SEPARATOR = System.lineSeparator().getBytes(StandardCharsets.UTF_8);
+    private static final byte[] ASCII = new byte[128];
+    private static final ThreadLocal<ResultWriter> CACHED = ThreadLocal.withInitial(() -> new ResultWriter(null, true));
+
+    static {
+        for (int i = 0; i < ASCII.length; i++) {
+            ASCII[i] = (byte) i;
+        }
+    }
+
+    private OutputStream stream;
+    private Charset charset = StandardCharsets.UTF_8;
+    private final FileChannel channel;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private final ByteBuffer view = ByteBuffer.wrap(this.buffer);
+    private final byte[] digits = new byte[20];
+    private final boolean cached;
+    private int position;
+
+    /**
+     * Writes to the stream, which is flushed but left open by {@link #close()}.
+     */
+    public ResultWriter(OutputStream stream) {
+        this(stream, false);
+    }
+
+    private ResultWriter(OutputStream stream, boolean cached) {
+        this.stream = stream;
+        this.charset = charsetOf(stream);
+        this.channel = null;
+        this.cached = cached;
+    }
+
+    private ResultWriter(FileChannel channel) {
+        this.stream = null;
+        this.channel = channel;
+        this.cached = false;
+    }
+
+    /**
+     * Writes to the stream with the buffer of the calling thread, handed back by {@link #close()}. A new
+     * writer is created when that buffer is already in use.
+     */
+    public static ResultWriter of(OutputStream stream) {
+        ResultWriter writer = CACHED.get();
+        if (writer.stream != null) {
+            return new ResultWriter(stream);
+        }
+        writer.stream = stream;
+        writer.charset = charsetOf(stream);
+        return writer;
+    }
+
+    // Digits, separators and line breaks are written as single ASCII bytes, so only such charsets are kept.
+    private static Charset charsetOf(OutputStream stream) {
+        if (stream instanceof PrintStream print) {
+            Charset charset = print.charset();
+            if (Arrays.equals(ASCII, new String(ASCII, StandardCharsets.US_ASCII).getBytes(charset))) {
+                return charset;
+            }
+        }
+        return StandardCharsets.UTF_8;
+    }
+
+    /**
+     * Creates or truncates the file; {@link #close()} closes it.
+     */
+    public static ResultWriter open(Path file) {
+        try {
+            return new ResultWriter(FileChannel.open(file, CREATE, TRUNCATE_EXISTING, WRITE));
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    public ResultWriter write(String text) {
+        int length = text.length();
+        if (length > this.buffer.length - this.position) {
+            this.drain();
+        }
+        if (length <= this.buffer.length) {
+            int position = this.position;
+            for (int i = 0; i < length; i++) {
+                char c = text.charAt(i);
+                if (c >= 0x80) {
+                    return this.write(text.substring(i).getBytes(this.charset), position);
+                }
+                this.buffer[position++] = (byte) c;
+            }
+            this.position = position;
+            return this;
+        }
+        return this.write(text.getBytes(this.charset), this.position);
+    }
+
+    /**
+     * Writes an ASCII character.
+     */
+    public ResultWriter write(char c) {
+        if (this.position == this.buffer.length) {
+            this.drain();
+        }
+        this.buffer[this.position++] = (byte) c;
+        return this;
+    }
+
+    public ResultWriter write(long value) {
+        if (value == Long.MIN_VALUE) {
+            return this.write(Long.toString(value));
+        }
+        if (value < 0) {
+            this.write('-');
+            value = -value;
+        }
+        int count = 0;
+        do {
+            this.digits[count++] = (byte) ('0' + value % 10);
+            value /= 10;
+        } while (value != 0);
+        if (count > this.buffer.length - this.position) {
+            this.drain();
+        }
+        while (count > 0) {
+            this.buffer[this.position++] = this.digits[--count];
+        }
+        return this;
+    }
+
+    /**
+     * Writes the value with a fixed number of decimals, rounding half up like {@code %.Nf}.
+     */
+    public ResultWriter write(double value, int decimals) {
+        if (decimals < 0 || decimals >= POWERS_OF_TEN.length) {
+            throw new IllegalArgumentException("Unsupported number of decimals %d".formatted(decimals));
+        }
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            return this.write(Double.toString(value));
+        }
+        if (Double.doubleToRawLongBits(value) < 0) {
+            this.write('-');
+            value = -value;
+        }
+        long scale = POWERS_OF_TEN[decimals];
+        double scaled = value * scale;
+        double fraction = scaled - Math.floor(scaled);
+        if (scaled >= FAST_LIMIT || Math.abs(fraction - 0.5) < TIE_MARGIN) {
+            // Formatter rounds the shortest decimal representation, not the exact binary value.
+            return this.write(new BigDecimal(Double.toString(value)).setScale(decimals, RoundingMode.HALF_UP)
+                    .toPlainString());
+        }
+        long units = (long) Math.floor(scaled) + (fraction > 0.5 ? 1 : 0);
+        this.write(units / scale);
+        if (decimals > 0) {
+            this.write('.');
+            long remainder = units % scale;
+            for (long power = scale / 10; power > 0; power /= 10) {
+                this.write((char) ('0' + remainder / power % 10));
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Writes a CSV field, quoted when it contains a comma, a quote or a line break.
+     */
+    public ResultWriter writeCsv(String field) {
+        for (int i = 0; i < field.length(); i++) {
+            char c = field.charAt(i);
+            if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+                return this.write('"').write(field.replace("\"", "\"\"")).write('"');
+            }
+        }
+        return this.write(field);
+    }
+
+    public ResultWriter newLine() {
+        return this.write(LINE_SEPARATOR, this.position);
+    }
+
+    @Override
+    public void flush() {
+        this.drain();
+        if (this.stream != null) {
+            try {
+                this.stream.flush();
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            this.flush();
+        } finally {
+            if (this.cached) {
+                this.position = 0;
+                this.stream = null;
+            }
+        }
+        if (this.channel != null) {
+            try {
+                this.channel.close();
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
+    // Writes the bytes from the given buffer position, discarding anything buffered after it.
+    private ResultWriter write(byte[] bytes, int position) {
+        this.position = position;
+        if (bytes.length > this.buffer.length - this.position) {
+            this.drain();
+        }
+        if (bytes.length > this.buffer.length) {
+            this.drain(bytes, bytes.length);
+        } else {
+            System.arraycopy(bytes, 0, this.buffer, this.position, bytes.length);
+            this.position += bytes.length;
+        }
+        return this;
+    }
+
+    private void drain() {
+        this.drain(this.buffer, this.position);
+        this.position = 0;
+    }
+
+    private void drain(byte[] bytes, int length) {
+        try {
+            if (this.channel != null) {
+                ByteBuffer view = bytes == this.buffer ? this.view.clear().limit(length) : ByteBuffer.wrap(bytes);
+                while (view.hasRemaining()) {
+                    this.channel.write(view);
+                }
+            } else {
+                this.stream.write(bytes, 0, length);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
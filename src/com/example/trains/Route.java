@@ -0,0 +1,9 @@
+package com.example.trains;
+
+import java.util.List;
+
+public record Route(
+        List<String> stations,
+        double cost,
+        int settled
+) {}
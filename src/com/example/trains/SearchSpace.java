@@ -0,0 +1,82 @@
+package com.example.trains;
+
+import java.util.Arrays;
+
+import static java.lang.Double.POSITIVE_INFINITY;
+
+/**
+ * Per-thread scratch arrays for a single search. Entries are only valid when their stamp matches the
+ * current generation, so starting a new search costs O(1) instead of an O(V) reset.
+ */
+final class SearchSpace {
+
+    private static final ThreadLocal<SearchSpace[]> POOL = ThreadLocal.withInitial(() -> new SearchSpace[2]);
+
+    final IndexedHeap heap;
+    private final double[] distances;
+    private final int[] previous;
+    private final int[] stamps;
+    private int generation;
+
+    private SearchSpace(int capacity) {
+        this.heap = new IndexedHeap(capacity);
+        this.distances = new double[capacity];
+        this.previous = new int[capacity];
+        this.stamps = new int[capacity];
+    }
+
+    static SearchSpace acquire(int size) {
+        return acquire(size, 0);
+    }
+
+    static SearchSpace acquireBackward(int size) {
+        return acquire(size, 1);
+    }
+
+    private static SearchSpace acquire(int size, int slot) {
+        SearchSpace[] spaces = POOL.get();
+        SearchSpace space = spaces[slot];
+        if (space == null || space.stamps.length < size) {
+            space = new SearchSpace(size);
+            spaces[slot] = space;
+        }
+        space.reset();
+        return space;
+    }
+
+    private void reset() {
+        this.heap.clear();
+        this.heap.resetPushes();
+        if (++this.generation == Integer.MAX_VALUE) {
+            Arrays.fill(this.stamps, 0);
+            this.generation = 1;
+        }
+    }
+
+    boolean isReached(int vertex) {
+        return this.stamps[vertex] == this.generation;
+    }
+
+    double distance(int vertex) {
+        return this.isReached(vertex) ? this.distances[vertex] : POSITIVE_INFINITY;
+    }
+
+    int previous(int vertex) {
+        return this.isReached(vertex) ? this.previous[vertex] : -1;
+    }
+
+    void update(int vertex, double distance, int previous) {
+        this.stamps[vertex] = this.generation;
+        this.distances[vertex] = distance;
+        this.previous[vertex] = previous;
+    }
+
+    void copyTo(double[] distances, int[] previous, int offset, int size) {
+        for (int vertex = 0; vertex < size; vertex++) {
+            distances[offset + vertex] = this.distance(vertex);
+            if (previous != null) {
+                previous[offset + vertex] = this.previous(vertex);
+            }
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.trains;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Least recently used shortest-path trees of one graph, bounded by an estimate of their memory. All
+ * entries are dropped when the graph version changes. Lookups may run concurrently; a miss computes the
+ * tree outside the lock, so two threads missing the same source at once both compute it. Returned trees
+ * are shared and must not be modified.
+ */
+public final class ShortestPathCache {
+
+    /**
+     * Counters since the cache was created, plus its current size.
+     */
+    public record Stats(long hits, long misses, long evictions, long invalidations, int entries, long bytes) {
+
+        public double hitRate() {
+            long requests = this.hits + this.misses;
+            return requests == 0 ? 0 : (double) this.hits / requests;
+        }
+    }
+
+    private static final long ENTRY_OVERHEAD = 96;
+
+    private final Graph graph;
+    private final long maxBytes;
+    private final LinkedHashMap<Integer, ShortestPathTree> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+    private long bytes;
+    private long version;
+
+    public ShortestPathCache(Graph graph, long maxBytes) {
+        if (maxBytes < 0) {
+            throw new IllegalArgumentException("Negative memory budget %d".formatted(maxBytes));
+        }
+        this.graph = graph;
+        this.maxBytes = maxBytes;
+        this.version = graph.getVersion();
+    }
+
+    public Graph getGraph() {
+        return graph;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public ShortestPathTree get(String source) {
+        CsrGraph csr = this.graph.getCsr();
+        return this.get(csr, this.graph.indexOf(source));
+    }
+
+    public ShortestPathTree get(int source) {
+        return this.get(this.graph.getCsr(), source);
+    }
+
+    private ShortestPathTree get(CsrGraph csr, int source) {
+        long version = this.graph.getVersion();
+        synchronized (this) {
+            if (version != this.version) {
+                this.invalidate(version);
+            }
+            ShortestPathTree tree = this.entries.get(source);
+            if (tree != null) {
+                this.hits.increment();
+                return tree;
+            }
+        }
+        this.misses.increment();
+        ShortestPathTree tree = csr.shortestPaths(source);
+        long size = sizeOf(tree);
+        synchronized (this) {
+            if (version == this.version && size <= this.maxBytes && !this.entries.containsKey(source)) {
+                this.entries.put(source, tree);
+                this.bytes += size;
+                this.evict();
+            }
+        }
+        return tree;
+    }
+
+    public synchronized void clear() {
+        this.entries.clear();
+        this.bytes = 0;
+    }
+
+    public synchronized Stats stats() {
+        return new Stats(this.hits.sum(), this.misses.sum(), this.evictions.sum(), this.invalidations.sum(),
+                this.entries.size(), this.bytes);
+    }
+
+    private void invalidate(long version) {
+        if (!this.entries.isEmpty()) {
+            this.invalidations.increment();
+        }
+        this.clear();
+        this.version = version;
+    }
+
+    private void evict() {
+        Iterator<Map.Entry<Integer, ShortestPathTree>> eldest = this.entries.entrySet().iterator();
+        while (this.bytes > this.maxBytes) {
+            this.bytes -= sizeOf(eldest.next().getValue());
+            eldest.remove();
+            this.evictions.increment();
+        }
+    }
+
+    // Distance and predecessor arrays plus the headers of the entry, tree and arrays.
+    private static long sizeOf(ShortestPathTree tree) {
+        return ENTRY_OVERHEAD + (long) tree.distances().length * (Double.BYTES + Integer.BYTES);
+    }
+}
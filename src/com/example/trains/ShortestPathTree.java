@@ -0,0 +1,44 @@
+package com.example.trains;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.lang.Double.POSITIVE_INFINITY;
+
+public record ShortestPathTree(
+        CsrGraph graph,
+        int source,
+        double[] distances,
+        int[] previous
+) {
+
+    public double distanceTo(int vertex) {
+        return this.distances[vertex];
+    }
+
+    public boolean isReachable(int vertex) {
+        return this.distances[vertex] != POSITIVE_INFINITY;
+    }
+
+    public List<String> pathTo(int vertex) {
+        List<String> path = new ArrayList<>();
+        if (this.isReachable(vertex)) {
+            for (int current = vertex; current >= 0; current = this.previous[current]) {
+                path.add(this.graph.name(current));
+            }
+        }
+        return path.reversed();
+    }
+
+    public void printDistances(PrintStream output) {
+        try (ResultWriter writer = ResultWriter.of(output)) {
+            for (int vertex = 0; vertex < this.distances.length; vertex++) {
+                for (int current = vertex; current >= 0; current = this.previous[current]) {
+                    writer.write(this.graph.name(current)).write(", ");
+                }
+                writer.write(this.distances[vertex], 2).newLine();
+            }
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.trains;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Case-insensitive lookup of stations by name or name prefix. Names are folded code point by code point
+ * the way {@link String#equalsIgnoreCase(String)} compares them, and the first station wins when several
+ * share a name.
+ */
+public final class StationIndex {
+
+    private record Entry(String folded, int vertex) {}
+
+    private final Map<String, Integer> byName;
+    private final String[] sortedNames;
+    private final int[] sortedVertices;
+
+    private StationIndex(Map<String, Integer> byName, String[] sortedNames, int[] sortedVertices) {
+        this.byName = byName;
+        this.sortedNames = sortedNames;
+        this.sortedVertices = sortedVertices;
+    }
+
+    public static StationIndex of(CsrGraph graph) {
+        String[] names = new String[graph.vertexCount()];
+        Arrays.setAll(names, graph::name);
+        return of(names);
+    }
+
+    public static StationIndex of(String[] names) {
+        int size = names.length;
+        Entry[] entries = new Entry[size];
+        Map<String, Integer> byName = HashMap.newHashMap(size);
+        for (int vertex = 0; vertex < size; vertex++) {
+            entries[vertex] = new Entry(fold(names[vertex]), vertex);
+            byName.putIfAbsent(entries[vertex].folded(), vertex);
+        }
+        // The sort is stable, so stations sharing a name stay in vertex order.
+        Arrays.sort(entries, Comparator.comparing(Entry::folded));
+        String[] sortedNames = new String[size];
+        int[] sortedVertices = new int[size];
+        for (int i = 0; i < size; i++) {
+            sortedNames[i] = entries[i].folded();
+            sortedVertices[i] = entries[i].vertex();
+        }
+        return new StationIndex(byName, sortedNames, sortedVertices);
+    }
+
+    public int size() {
+        return this.sortedNames.length;
+    }
+
+    /**
+     * Returns the station with this name, ignoring case, or -1 if there is none.
+     */
+    public int indexOf(String name) {
+        return this.byName.getOrDefault(fold(name), -1);
+    }
+
+    /**
+     * Returns up to {@code limit} stations whose name starts with the prefix, ignoring case, in
+     * alphabetical order of their folded names.
+     */
+    public int[] startingWith(String prefix, int limit) {
+        String folded = fold(prefix);
+        int first = Arrays.binarySearch(this.sortedNames, folded);
+        if (first < 0) {
+            first = -first - 1;
+        } else {
+            while (first > 0 && this.sortedNames[first - 1].equals(folded)) {
+                first--;
+            }
+        }
+        int end = first;
+        while (end < this.sortedNames.length && end - first < limit && this.sortedNames[end].startsWith(folded)) {
+            end++;
+        }
+        return Arrays.copyOfRange(this.sortedVertices, first, end);
+    }
+
+    static String fold(String name) {
+        StringBuilder folded = new StringBuilder(name.length());
+        name.codePoints().forEach(c -> folded.appendCodePoint(Character.toLowerCase(Character.toUpperCase(c))));
+        return folded.toString();
+    }
+}
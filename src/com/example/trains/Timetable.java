@@ -0,0 +1,319 @@
+package com.example.trains;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static java.lang.Integer.parseInt;
+
+/**
+ * Scheduled train connections, each one vehicle running between two consecutive stops of a trip, sorted
+ * by departure time. Earliest-arrival queries use the connection scan algorithm: a single pass over the
+ * connections departing after the requested time, with no priority queue. Times are seconds after the
+ * midnight starting the service day and may exceed 24 hours.
+ */
+public final class Timetable {
+
+    public record Leg(String trip, String from, String to, int departure, int arrival) {}
+
+    public record Journey(int departure, int arrival, List<Leg> legs) {
+
+        public int transfers() {
+            return Math.max(0, this.legs.size() - 1);
+        }
+    }
+
+    private static final ThreadLocal<Scan> SCANS = new ThreadLocal<>();
+
+    private final String[] stations;
+    private final StationIndex index;
+    private final String[] trips;
+    private final int[] tripOf;
+    private final int[] from;
+    private final int[] to;
+    private final int[] departures;
+    private final int[] arrivals;
+
+    /**
+     * Builds a timetable from one entry per connection, in any order.
+     */
+    public Timetable(String[] stations, String[] trips, int[] tripOf, int[] from, int[] to,
+                     int[] departures, int[] arrivals) {
+        int count = tripOf.length;
+        if (from.length != count || to.length != count || departures.length != count || arrivals.length != count) {
+            throw new IllegalArgumentException("Inconsistent connection arrays");
+        }
+        int latest = 0;
+        for (int c = 0; c < count; c++) {
+            if (departures[c] < 0 || arrivals[c] < departures[c]) {
+                throw new IllegalArgumentException("Connection %d arrives before it departs".formatted(c));
+            }
+            latest = Math.max(latest, arrivals[c]);
+        }
+        // Two stable counting sorts: by arrival, then by departure.
+        int[] order = countingSort(arrivals, identity(count), latest);
+        order = countingSort(departures, order, latest);
+        this.stations = stations;
+        this.index = StationIndex.of(stations);
+        this.trips = trips;
+        this.tripOf = permute(tripOf, order);
+        this.from = permute(from, order);
+        this.to = permute(to, order);
+        this.departures = permute(departures, order);
+        this.arrivals = permute(arrivals, order);
+    }
+
+    /**
+     * Reads station names, a blank line, then {@code trip, from, to, departure, arrival} lines where
+     * stations are indices and times are {@code HH:MM} or {@code HH:MM:SS}. Invalid lines are ignored.
+     */
+    public static Timetable readFrom(String filename) {
+        List<String> lines;
+        try {
+            lines = Files.readAllLines(Path.of(filename));
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        int blank = 0;
+        while (blank < lines.size() && !lines.get(blank).isBlank()) {
+            blank++;
+        }
+        List<String> names = lines.subList(0, blank);
+        Map<String, Integer> tripIds = new HashMap<>();
+        List<int[]> connections = new ArrayList<>();
+        for (String line : lines.subList(Math.min(blank + 1, lines.size()), lines.size())) {
+            String[] params = line.split(",");
+            if (params.length >= 5) {
+                try {
+                    int source = parseInt(params[1].trim());
+                    int target = parseInt(params[2].trim());
+                    int departure = parseTime(params[3]);
+                    int arrival = parseTime(params[4]);
+                    if (source >= 0 && source < names.size() && target >= 0 && target < names.size()
+                            && departure >= 0 && arrival >= departure) {
+                        int trip = tripIds.computeIfAbsent(params[0].trim(), ignore -> tripIds.size());
+                        connections.add(new int[] {trip, source, target, departure, arrival});
+                    }
+                } catch (IllegalArgumentException ignore) {}
+            }
+        }
+        String[] trips = new String[tripIds.size()];
+        tripIds.forEach((name, trip) -> trips[trip] = name);
+        int[][] columns = new int[5][connections.size()];
+        for (int c = 0; c < connections.size(); c++) {
+            for (int column = 0; column < 5; column++) {
+                columns[column][c] = connections.get(c)[column];
+            }
+        }
+        return new Timetable(names.toArray(String[]::new), trips, columns[0], columns[1], columns[2],
+                columns[3], columns[4]);
+    }
+
+    public int stationCount() {
+        return this.stations.length;
+    }
+
+    public int connectionCount() {
+        return this.departures.length;
+    }
+
+    public String station(int station) {
+        return this.stations[station];
+    }
+
+    public StationIndex getStations() {
+        return index;
+    }
+
+    public Optional<Journey> earliestArrival(String from, String to, int departure) {
+        return this.earliestArrival(this.indexOf(from), this.indexOf(to), departure, 0);
+    }
+
+    /**
+     * Returns the journey reaching the target first when leaving the source no earlier than the given
+     * time. Staying on a trip is free; changing trains needs {@code transfer} seconds at the station.
+     */
+    public Optional<Journey> earliestArrival(int source, int target, int departure, int transfer) {
+        if (source == target) {
+            return Optional.of(new Journey(departure, departure, List.of()));
+        }
+        Scan scan = Scan.acquire(this.stations.length, this.trips.length);
+        scan.reach(source, departure, departure, -1);
+        for (int c = this.firstDepartingAt(departure); c < this.departures.length; c++) {
+            int time = this.departures[c];
+            if (time >= scan.arrival(target)) {
+                break;
+            }
+            int trip = this.tripOf[c];
+            if (scan.isBoarded(trip) || scan.ready(this.from[c]) <= time) {
+                scan.board(trip, c);
+                int arrival = this.arrivals[c];
+                int next = this.to[c];
+                if (arrival < scan.arrival(next)) {
+                    scan.reach(next, arrival, arrival + transfer, c);
+                }
+            }
+        }
+        if (scan.arrival(target) == Integer.MAX_VALUE) {
+            return Optional.empty();
+        }
+        List<Leg> legs = new ArrayList<>();
+        for (int station = target; station != source; ) {
+            int last = scan.via(station);
+            int first = scan.boardedAt(this.tripOf[last]);
+            legs.add(new Leg(this.trips[this.tripOf[last]], this.stations[this.from[first]],
+                    this.stations[this.to[last]], this.departures[first], this.arrivals[last]));
+            station = this.from[first];
+        }
+        Collections.reverse(legs);
+        return Optional.of(new Journey(legs.getFirst().departure(), scan.arrival(target), legs));
+    }
+
+    public static int parseTime(String time) {
+        String[] parts = time.trim().split(":");
+        if (parts.length < 2 || parts.length > 3) {
+            throw new IllegalArgumentException("Invalid time %s".formatted(time));
+        }
+        int minutes = parseInt(parts[1]);
+        int seconds = parts.length == 3 ? parseInt(parts[2]) : 0;
+        if (minutes < 0 || minutes > 59 || seconds < 0 || seconds > 59) {
+            throw new IllegalArgumentException("Invalid time %s".formatted(time));
+        }
+        return Math.addExact(Math.multiplyExact(parseInt(parts[0]), 3600), minutes * 60 + seconds);
+    }
+
+    public static String formatTime(int time) {
+        int seconds = time % 60;
+        String hours = "%02d:%02d".formatted(time / 3600, time / 60 % 60);
+        return seconds == 0 ? hours : hours + ":%02d".formatted(seconds);
+    }
+
+    private int indexOf(String name) {
+        int station = this.index.indexOf(name);
+        if (station < 0) {
+            throw new IllegalArgumentException("No such vertex with name %s".formatted(name));
+        }
+        return station;
+    }
+
+    private int firstDepartingAt(int time) {
+        int low = 0;
+        int high = this.departures.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (this.departures[middle] < time) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private static int[] identity(int count) {
+        int[] identity = new int[count];
+        Arrays.setAll(identity, i -> i);
+        return identity;
+    }
+
+    private static int[] countingSort(int[] keys, int[] order, int latest) {
+        int[] starts = new int[latest + 2];
+        for (int c : order) {
+            starts[keys[c] + 1]++;
+        }
+        for (int time = 0; time <= latest; time++) {
+            starts[time + 1] += starts[time];
+        }
+        int[] sorted = new int[order.length];
+        for (int c : order) {
+            sorted[starts[keys[c]]++] = c;
+        }
+        return sorted;
+    }
+
+    private static int[] permute(int[] values, int[] order) {
+        int[] permuted = new int[order.length];
+        for (int i = 0; i < order.length; i++) {
+            permuted[i] = values[order[i]];
+        }
+        return permuted;
+    }
+
+    /**
+     * Per-thread scan state, reset in O(1) with generation stamps like {@link SearchSpace}.
+     */
+    private static final class Scan {
+
+        private final int[] arrivals;
+        private final int[] ready;
+        private final int[] via;
+        private final int[] stationStamps;
+        private final int[] boardedAt;
+        private final int[] tripStamps;
+        private int generation;
+
+        private Scan(int stations, int trips) {
+            this.arrivals = new int[stations];
+            this.ready = new int[stations];
+            this.via = new int[stations];
+            this.stationStamps = new int[stations];
+            this.boardedAt = new int[trips];
+            this.tripStamps = new int[trips];
+        }
+
+        static Scan acquire(int stations, int trips) {
+            Scan scan = SCANS.get();
+            if (scan == null || scan.arrivals.length < stations || scan.boardedAt.length < trips) {
+                scan = new Scan(stations, trips);
+                SCANS.set(scan);
+            }
+            if (++scan.generation == Integer.MAX_VALUE) {
+                Arrays.fill(scan.stationStamps, 0);
+                Arrays.fill(scan.tripStamps, 0);
+                scan.generation = 1;
+            }
+            return scan;
+        }
+
+        int arrival(int station) {
+            return this.stationStamps[station] == this.generation ? this.arrivals[station] : Integer.MAX_VALUE;
+        }
+
+        int ready(int station) {
+            return this.stationStamps[station] == this.generation ? this.ready[station] : Integer.MAX_VALUE;
+        }
+
+        int via(int station) {
+            return this.via[station];
+        }
+
+        void reach(int station, int arrival, int ready, int connection) {
+            this.stationStamps[station] = this.generation;
+            this.arrivals[station] = arrival;
+            this.ready[station] = ready;
+            this.via[station] = connection;
+        }
+
+        boolean isBoarded(int trip) {
+            return this.tripStamps[trip] == this.generation;
+        }
+
+        int boardedAt(int trip) {
+            return this.boardedAt[trip];
+        }
+
+        void board(int trip, int connection) {
+            if (this.tripStamps[trip] != this.generation) {
+                this.tripStamps[trip] = this.generation;
+                this.boardedAt[trip] = connection;
+            }
+        }
+    }
+}
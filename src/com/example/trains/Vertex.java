@@ -0,0 +1,84 @@
+package com.example.trains;
+
+import java.util.Arrays;
+
+public final class Vertex {
+
+    private final int index;
+    private final String name;
+    private Edge[] edges = {};
+    private int edgeCount;
+    private double distance;
+    private boolean visited;
+    private Vertex previous;
+
+    public Vertex(int index, String name) {
+        this.index = index;
+        this.name = name;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the edges, sharing the stored array once {@link #freeze()} trimmed it and copying them
+     * while edges are still being added.
+     */
+    public Edge[] getEdges() {
+        return this.edges.length == this.edgeCount ? edges : Arrays.copyOf(this.edges, this.edgeCount);
+    }
+
+    void setEdge(int index, Edge edge) {
+        if (index >= this.edgeCount) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        this.edges[index] = edge;
+    }
+
+    public void setEdges(Edge[] edges) {
+        this.edges = edges;
+        this.edgeCount = edges.length;
+    }
+
+    public void addEdge(Edge edge) {
+        if (this.edgeCount == this.edges.length) {
+            this.edges = Arrays.copyOf(this.edges, Math.max(4, this.edgeCount * 2));
+        }
+        this.edges[this.edgeCount++] = edge;
+    }
+
+    public void freeze() {
+        if (this.edges.length != this.edgeCount) {
+            this.edges = Arrays.copyOf(this.edges, this.edgeCount);
+        }
+    }
+
+    public double getDistance() {
+        return distance;
+    }
+
+    public void setDistance(double distance) {
+        this.distance = distance;
+    }
+
+    public boolean isVisited() {
+        return visited;
+    }
+
+    public void setVisited(boolean visited) {
+        this.visited = visited;
+    }
+
+    public Vertex getPrevious() {
+        return previous;
+    }
+
+    public void setPrevious(Vertex previous) {
+        this.previous = previous;
+    }
+}
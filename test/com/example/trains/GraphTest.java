@@ -0,0 +1,824 @@
+package com.example.trains;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.Random;
+import java.util.stream.IntStream;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static java.lang.Double.POSITIVE_INFINITY;
+import static java.util.Arrays.stream;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class GraphTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void testEnginesAgreeOnInput() {
+        assertEnginesAgree("input.txt");
+    }
+
+    @Test
+    void testEnginesAgreeWithTies() throws IOException {
+        assertEnginesAgree(writeRandomNetwork(200, 1000, 42L).toString());
+    }
+
+    @Test
+    void testConcurrentShortestPathsMatchSequential() throws IOException {
+        Graph graph = new Graph();
+        graph.readFrom(writeRandomNetwork(300, 2000, 7L).toString());
+        CsrGraph csr = graph.getCsr();
+        List<ShortestPathTree> sequential = IntStream.range(0, csr.vertexCount())
+                .mapToObj(csr::shortestPaths)
+                .toList();
+        List<ShortestPathTree> parallel = IntStream.range(0, csr.vertexCount())
+                .parallel()
+                .mapToObj(csr::shortestPaths)
+                .toList();
+        for (int source = 0; source < csr.vertexCount(); source++) {
+            assertArrayEquals(sequential.get(source).distances(), parallel.get(source).distances());
+            assertArrayEquals(sequential.get(source).previous(), parallel.get(source).previous());
+        }
+    }
+
+    @Test
+    void testShortestPathsLeaveVerticesUntouched() {
+        Graph graph = new Graph();
+        graph.readFrom("input.txt");
+        graph.distancesFrom("Lyon");
+        ShortestPathTree tree = graph.shortestPaths("grenoble");
+        assertEquals(List.of("Grenoble", "Lyon", "Montpellier", "Narbonne"), tree.pathTo(8));
+        assertEquals(2.70, graph.getVertices()[8].getDistance(), 1e-9);
+        assertEquals(4.10, tree.distanceTo(8), 1e-9);
+    }
+
+    @Test
+    void testAllPairsDistancesMatchSingleSource() throws IOException {
+        Graph graph = new Graph();
+        graph.readFrom(writeRandomNetwork(150, 900, 11L).toString());
+        DistanceMatrix matrix = graph.allPairsDistances(true);
+        CsrGraph csr = graph.getCsr();
+        for (int source = 0; source < csr.vertexCount(); source++) {
+            ShortestPathTree tree = csr.shortestPaths(source);
+            for (int target = 0; target < csr.vertexCount(); target++) {
+                assertEquals(tree.distanceTo(target), matrix.distance(source, target));
+                assertEquals(tree.previous()[target], matrix.previous(source, target));
+            }
+        }
+    }
+
+    @Test
+    void testBatchDistancesMatchSingleSource() {
+        Graph graph = new Graph();
+        graph.readFrom("input.txt");
+        DistanceMatrix matrix = graph.distancesFrom(List.of("Paris", "lyon", "Narbonne", "Paris"), true);
+        assertEquals(4, matrix.rows());
+        assertEquals(0, matrix.source(1));
+        for (int row = 0; row < matrix.rows(); row++) {
+            ShortestPathTree tree = graph.getCsr().shortestPaths(matrix.source(row));
+            for (int target = 0; target < matrix.size(); target++) {
+                assertEquals(tree.distanceTo(target), matrix.distance(row, target));
+                assertEquals(tree.previous()[target], matrix.previous(row, target));
+            }
+        }
+        assertEquals(0, graph.getVertices()[8].getDistance());
+    }
+
+    @Test
+    void testStationIndexLookups() {
+        Graph graph = new Graph();
+        graph.readFrom("input.txt");
+        graph.addVertex("Saint-Étienne");
+        graph.addVertex("LYON");
+        StationIndex stations = graph.getStations();
+        assertEquals(11, stations.size());
+        assertEquals(0, stations.indexOf("lYoN"));
+        assertEquals(9, stations.indexOf("SAINT-éTIENNE"));
+        assertEquals(-1, stations.indexOf("Lyo"));
+        assertArrayEquals(new int[] {0, 10}, stations.startingWith("ly", 5));
+        assertArrayEquals(new int[] {6}, stations.startingWith("B", 5));
+        assertArrayEquals(new int[] {0}, stations.startingWith("L", 1));
+        assertEquals(11, stations.startingWith("", 20).length);
+        assertEquals(0, stations.startingWith("Zurich", 5).length);
+        assertThrows(IllegalArgumentException.class, () -> graph.distancesFrom("Nowhere"));
+    }
+
+    @Test
+    void testStationIndexOrdersEqualNamesByVertex() {
+        Random random = new Random(11L);
+        String[] names = new String[1000];
+        Arrays.setAll(names, i -> (random.nextBoolean() ? "S" : "s") + random.nextInt(300));
+        int[] expected = IntStream.range(0, names.length).boxed()
+                .sorted((a, b) -> StationIndex.fold(names[a]).compareTo(StationIndex.fold(names[b])))
+                .mapToInt(Integer::intValue)
+                .toArray();
+        assertArrayEquals(expected, StationIndex.of(names).startingWith("", names.length));
+    }
+
+    @Test
+    void testReadFromToleratesMessyInput() throws IOException {
+        Path file = this.directory.resolve("messy.txt");
+        Files.writeString(file, String.join("\r\n",
+                "Lyon",
+                " Saint-Étienne ",
+                "Paris",
+                "  \t",
+                "0, 1, 0.75",
+                "",
+                "1,2,1e1",
+                " 2 ,\t0 , +3.5 , ignored",
+                "0, 2",
+                "0, 9, 1.0",
+                "x, 1, 1.0",
+                "2, 1, 1.5 hours",
+                "-0, 2, 2.") + "\r\n\n1, 0, .25");
+        Graph graph = new Graph();
+        graph.readFrom(file.toString());
+        CsrGraph csr = graph.getCsr();
+        assertEquals(3, csr.vertexCount());
+        assertEquals(" Saint-Étienne ", csr.name(1));
+        assertEquals(5, csr.edgeCount());
+        assertEdge(csr, 0, 0, 1, 0.75);
+        assertEdge(csr, 1, 0, 2, 2.0);
+        assertEdge(csr, 2, 1, 2, 10.0);
+        assertEdge(csr, 3, 1, 0, 0.25);
+        assertEdge(csr, 4, 2, 0, 3.5);
+        assertEquals(csr.edgeCount(), stream(graph.getVertices()).mapToInt(v -> v.getEdges().length).sum());
+    }
+
+    @Test
+    void testBuiltGraphMatchesLoadedGraph() {
+        Graph loaded = new Graph();
+        loaded.readFrom("input.txt");
+        Graph built = new Graph();
+        for (Vertex vertex : loaded.getVertices()) {
+            built.addVertex(vertex.getName());
+        }
+        for (Vertex vertex : loaded.getVertices()) {
+            for (Edge edge : vertex.getEdges()) {
+                built.addEdge(vertex.getIndex(), edge.target().getIndex(), edge.cost());
+            }
+        }
+        built.freeze();
+        assertSameGraph(loaded.getCsr(), built.getCsr());
+        for (int vertex = 0; vertex < loaded.getCsr().vertexCount(); vertex++) {
+            assertEquals(loaded.getVertices()[vertex].getEdges().length, built.getVertices()[vertex].getEdges().length);
+        }
+    }
+
+    @Test
+    void testVerticesAreCreatedFromLoadedGraph() {
+        Graph graph = new Graph();
+        graph.readFrom("input.txt");
+        Vertex[] vertices = graph.getVertices();
+        assertSame(vertices, graph.getVertices());
+        assertEquals("Montpellier", vertices[0].getEdges()[4].target().getName());
+        graph.setCost("Lyon", "Montpellier", 9);
+        assertEquals(9.0, graph.getVertices()[0].getEdges()[4].cost());
+        graph.addVertex("Nice");
+        graph.addEdge(5, 9, 2.5);
+        assertEquals(10, graph.getCsr().vertexCount());
+        assertEquals(9.0, graph.getCsr().cost(graph.getCsr().findEdge(0, 5)));
+        assertEquals(2.5, graph.getCsr().cost(graph.getCsr().findEdge(5, 9)));
+        assertEquals(9, graph.getStations().indexOf("nice"));
+    }
+
+    @Test
+    void testReadingEdgesDoesNotTrimWhileBuilding() {
+        Vertex vertex = new Vertex(0, "Lyon");
+        Vertex target = new Vertex(1, "Paris");
+        for (int i = 0; i < 5; i++) {
+            vertex.addEdge(new Edge(target, i));
+            Edge[] edges = vertex.getEdges();
+            assertEquals(i + 1, edges.length);
+            assertEquals(i, edges[i].cost());
+        }
+        assertEquals(0.0, vertex.getEdges()[0].cost());
+        vertex.freeze();
+        assertSame(vertex.getEdges(), vertex.getEdges());
+    }
+
+    private static void assertSameGraph(CsrGraph expected, CsrGraph actual) {
+        assertEquals(expected.vertexCount(), actual.vertexCount());
+        for (int vertex = 0; vertex < expected.vertexCount(); vertex++) {
+            assertEquals(expected.name(vertex), actual.name(vertex));
+            assertEquals(expected.firstEdge(vertex), actual.firstEdge(vertex));
+            assertEquals(expected.lastEdge(vertex), actual.lastEdge(vertex));
+        }
+        for (int edge = 0; edge < expected.edgeCount(); edge++) {
+            assertEquals(expected.target(edge), actual.target(edge));
+            assertEquals(expected.cost(edge), actual.cost(edge));
+        }
+    }
+
+    @Test
+    void testSnapshotRoundTrip() throws IOException {
+        Graph text = new Graph();
+        text.readFrom(writeRandomNetwork(500, 4000, 3L).toString());
+        text.addVertex("Saint-Étienne");
+        text.addEdge(500, 0, 0.1);
+        Path snapshot = this.directory.resolve("network.bin");
+        text.writeSnapshot(snapshot.toString());
+        Graph binary = new Graph();
+        binary.readSnapshot(snapshot.toString());
+        assertSameGraph(text.getCsr(), binary.getCsr());
+        for (int source = 0; source < 500; source += 50) {
+            assertArrayEquals(text.getCsr().shortestPaths(source).distances(),
+                    binary.getCsr().shortestPaths(source).distances());
+        }
+    }
+
+    @Test
+    void testCorruptSnapshotIsRejected() throws IOException {
+        Graph graph = new Graph();
+        graph.readFrom("input.txt");
+        int vertexCount = graph.getCsr().vertexCount();
+        Path snapshot = this.directory.resolve("network.bin");
+        graph.writeSnapshot(snapshot.toString());
+        byte[] bytes = Files.readAllBytes(snapshot);
+        ByteBuffer buffer = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+        int edgeOffsets = (5 + vertexCount + 1) * Integer.BYTES + buffer.getInt(16);
+        edgeOffsets = (edgeOffsets + 7) & ~7;
+        int targets = edgeOffsets + (vertexCount + 1) * Integer.BYTES;
+
+        Path badTarget = this.directory.resolve("target.bin");
+        Files.write(badTarget, ByteBuffer.wrap(bytes.clone()).order(ByteOrder.LITTLE_ENDIAN)
+                .putInt(targets, vertexCount).array());
+        RuntimeException e = assertThrows(RuntimeException.class, () -> new Graph().readSnapshot(badTarget.toString()));
+        assertTrue(e.getCause().getMessage().contains("targets vertex %d".formatted(vertexCount)));
+
+        Path badOffset = this.directory.resolve("offset.bin");
+        Files.write(badOffset, ByteBuffer.wrap(bytes.clone()).order(ByteOrder.LITTLE_ENDIAN)
+                .putInt(edgeOffsets + Integer.BYTES, 1000).array());
+        e = assertThrows(RuntimeException.class, () -> new Graph().readSnapshot(badOffset.toString()));
+        assertTrue(e.getCause().getMessage().contains("edge offsets decrease"));
+
+        Path truncated = this.directory.resolve("truncated.bin");
+        Files.write(truncated, Arrays.copyOf(bytes, bytes.length - 1));
+        e = assertThrows(RuntimeException.class, () -> new Graph().readSnapshot(truncated.toString()));
+        assertTrue(e.getCause().getMessage().contains("expected %d bytes".formatted(bytes.length)));
+
+        Path huge = this.directory.resolve("huge.bin");
+        Files.write(huge, ByteBuffer.wrap(bytes.clone()).order(ByteOrder.LITTLE_ENDIAN)
+                .putInt(8, Integer.MAX_VALUE - 1).putInt(12, Integer.MAX_VALUE).array());
+        e = assertThrows(RuntimeException.class, () -> new Graph().readSnapshot(huge.toString()));
+        assertTrue(e.getCause().getMessage().contains("but the file has %d".formatted(bytes.length)));
+    }
+
+    @Test
+    void testGeneratedNetworkIsReadBack() throws IOException {
+        NetworkGenerator generator = NetworkGenerator.parse(
+                "vertices=400", "degree=2:5", "window=20", "symmetry=0", "cost=0.5:3", "seed=9");
+        Path file = this.directory.resolve("generated.txt");
+        generator.writeTo(file);
+        EdgeList expected = new EdgeList();
+        generator.generate(expected::add);
+        Graph graph = new Graph();
+        graph.readFrom(file.toString());
+        CsrGraph csr = graph.getCsr();
+        assertEquals(400, csr.vertexCount());
+        assertEquals("Station399", csr.name(399));
+        assertEquals(expected.size(), csr.edgeCount());
+        for (int edge = 0; edge < expected.size(); edge++) {
+            int source = expected.source(edge);
+            assertEquals(expected.target(edge), csr.target(edge));
+            assertEquals(expected.cost(edge), csr.cost(edge));
+            assertTrue(csr.firstEdge(source) <= edge && edge < csr.lastEdge(source));
+            assertTrue(Math.abs(source - csr.target(edge)) <= 20 || Math.abs(source - csr.target(edge)) >= 380);
+            assertTrue(csr.cost(edge) >= 0.5 && csr.cost(edge) <= 3);
+        }
+        for (int vertex = 0; vertex < csr.vertexCount(); vertex++) {
+            int degree = csr.lastEdge(vertex) - csr.firstEdge(vertex);
+            assertTrue(degree >= 2 && degree <= 5);
+        }
+        Path again = this.directory.resolve("again.txt");
+        generator.writeTo(again);
+        assertEquals(-1L, Files.mismatch(file, again));
+    }
+
+    @Test
+    void testGeneratedSymmetricNetworkHasReverseEdges() throws IOException {
+        NetworkGenerator generator = NetworkGenerator.parse(
+                "vertices=200", "degrees=power_law", "degree=1:50", "symmetry=1", "seed=3");
+        EdgeList edges = new EdgeList();
+        generator.generate(edges::add);
+        assertEquals(0, edges.size() % 2);
+        for (int edge = 0; edge < edges.size(); edge += 2) {
+            assertEquals(edges.source(edge), edges.target(edge + 1));
+            assertEquals(edges.target(edge), edges.source(edge + 1));
+            assertEquals(edges.cost(edge), edges.cost(edge + 1));
+        }
+    }
+
+    @Test
+    void testGeneratedNetworkHasNoParallelEdges() throws IOException {
+        for (String symmetry : List.of("symmetry=1", "symmetry=0.5")) {
+            for (String window : List.of("window=3", "window=0")) {
+                NetworkGenerator generator = NetworkGenerator.parse(
+                        "vertices=300", "degrees=fixed", "degree=4", window, symmetry, "seed=5");
+                EdgeList edges = new EdgeList();
+                generator.generate(edges::add);
+                long[] pairs = new long[edges.size()];
+                Arrays.setAll(pairs, edge -> (long) edges.source(edge) << 32 | edges.target(edge));
+                assertEquals(pairs.length, Arrays.stream(pairs).distinct().count());
+            }
+        }
+        assertThrows(IllegalArgumentException.class, () -> NetworkGenerator.parse("cost=1:1e300"));
+    }
+
+    @Test
+    void testDynamicShortestPathsMatchRecompute() throws IOException {
+        Graph graph = new Graph();
+        graph.readFrom(writeRandomNetwork(300, 1500, 5L).toString());
+        graph.setCache(new ShortestPathCache(graph, 1 << 20));
+        CsrGraph csr = graph.getCsr();
+        String source = csr.name(0);
+        DynamicShortestPaths dynamic = graph.dynamicShortestPaths(source);
+        Random random = new Random(17L);
+        for (int batch = 0; batch < 200; batch++) {
+            graph.shortestPaths(source);
+            int[] edges = random.ints(1 + random.nextInt(8), 0, csr.edgeCount()).toArray();
+            double[] costs = random.ints(edges.length, 0, 7).asDoubleStream().toArray();
+            dynamic.setCosts(edges, costs);
+            ShortestPathTree expected = csr.shortestPaths(0);
+            ShortestPathTree cached = graph.shortestPaths(source);
+            graph.distancesFrom(graph.getVertices()[0]);
+            for (int vertex = 0; vertex < csr.vertexCount(); vertex++) {
+                assertEquals(expected.distanceTo(vertex), dynamic.distanceTo(vertex));
+                assertEquals(expected.distanceTo(vertex), cached.distanceTo(vertex));
+                assertEquals(expected.distanceTo(vertex), graph.getVertices()[vertex].getDistance(), 1e-9);
+                int previous = dynamic.previous(vertex);
+                if (previous >= 0) {
+                    double cost = POSITIVE_INFINITY;
+                    for (int edge = csr.firstEdge(previous); edge < csr.lastEdge(previous); edge++) {
+                        cost = csr.target(edge) == vertex ? Math.min(cost, csr.cost(edge)) : cost;
+                    }
+                    assertEquals(dynamic.distanceTo(previous) + cost, dynamic.distanceTo(vertex));
+                }
+            }
+        }
+    }
+
+    @Test
+    void testSetCostUpdatesEveryView() {
+        Graph graph = new Graph();
+        graph.readFrom("input.txt");
+        DynamicShortestPaths dynamic = graph.dynamicShortestPaths("Lyon");
+        assertEquals(2.7, dynamic.distanceTo(8), 1e-9);
+        assertEquals(Optional.of(List.of("Lyon", "Montpellier", "Narbonne")),
+                graph.bidirectionalRoute("Lyon", "Narbonne").map(Route::stations));
+        graph.setCost("Lyon", "Montpellier", 9);
+        CsrGraph csr = graph.getCsr();
+        int edge = csr.findEdge(0, 5);
+        assertEquals(0, csr.source(edge));
+        assertEquals(9.0, graph.getVertices()[0].getEdges()[edge - csr.firstEdge(0)].cost());
+        assertTrue(dynamic.repair(edge) < csr.vertexCount());
+        assertEquals(graph.route("Lyon", "Narbonne").map(Route::cost),
+                graph.bidirectionalRoute("Lyon", "Narbonne").map(Route::cost));
+        assertEquals(graph.route("Lyon", "Narbonne").orElseThrow().cost(), dynamic.distanceTo(8));
+        assertEquals(List.of("Lyon", "Paris", "Montpellier", "Narbonne"), dynamic.toTree().pathTo(8));
+        graph.distancesFrom("Lyon");
+        assertEquals(dynamic.distanceTo(8), graph.getVertices()[8].getDistance());
+    }
+
+    @Test
+    void testShortestPathCacheEvictsLeastRecentlyUsed() {
+        Graph graph = new Graph();
+        graph.readFrom("input.txt");
+        ShortestPathCache cache = new ShortestPathCache(graph, 450);
+        graph.setCache(cache);
+        ShortestPathTree lyon = graph.shortestPaths("Lyon");
+        graph.shortestPaths("Paris");
+        assertSame(lyon, graph.shortestPaths("lyon"));
+        graph.shortestPaths("Narbonne");
+        assertEquals(new ShortestPathCache.Stats(1, 3, 1, 0, 2, 408), cache.stats());
+        assertSame(lyon, graph.shortestPaths("Lyon"));
+        graph.shortestPaths("Paris");
+        assertEquals(new ShortestPathCache.Stats(2, 4, 2, 0, 2, 408), cache.stats());
+    }
+
+    @Test
+    void testShortestPathCacheIsInvalidatedByChanges() {
+        Graph graph = new Graph();
+        graph.readFrom("input.txt");
+        graph.setCache(new ShortestPathCache(graph, 1 << 20));
+        graph.distancesFrom("Lyon");
+        assertEquals(2.70, graph.getVertices()[8].getDistance(), 1e-9);
+        assertEquals("Montpellier", graph.getVertices()[8].getPrevious().getName());
+        graph.setCost("Lyon", "Montpellier", 9);
+        graph.distancesFrom("Lyon");
+        assertEquals(6.15, graph.getVertices()[8].getDistance(), 1e-9);
+        graph.distancesFrom("Lyon");
+        assertEquals(new ShortestPathCache.Stats(1, 2, 0, 1, 1, 204), graph.getCache().stats());
+        graph.setCache(null);
+        graph.distancesFrom("Lyon");
+        assertEquals(6.15, graph.getVertices()[8].getDistance(), 1e-9);
+    }
+
+    @Test
+    void testResultWriterMatchesFormatter() {
+        Random random = new Random(23L);
+        List<Double> values = new ArrayList<>(List.of(0.0, -0.0, -0.001, 1.005, 2.675, 0.045, 0.125, 1e20 + 0.5,
+                123456789.125, 5e-324, 999.995, 1e9 - 0.005, Double.MAX_VALUE, POSITIVE_INFINITY, Double.NaN));
+        for (int i = 0; i < 20000; i++) {
+            values.add(random.nextInt(2_000_000) / 1000.0);
+            values.add((random.nextDouble() - 0.5) * Math.pow(10, random.nextInt(14) - 4));
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ResultWriter writer = new ResultWriter(bytes);
+        StringBuilder expected = new StringBuilder();
+        for (double value : values) {
+            for (int decimals : new int[] {0, 2, 6}) {
+                writer.write(value, decimals).write(' ');
+                expected.append(String.format(Locale.ROOT, "%." + decimals + "f ", value));
+            }
+            writer.write((long) value).write(" Étape ").newLine();
+            expected.append((long) value).append(" Étape ").append(System.lineSeparator());
+        }
+        writer.flush();
+        assertEquals(expected.toString(), bytes.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testResultWriterUsesPrintStreamCharset() {
+        ByteArrayOutputStream latin = new ByteArrayOutputStream();
+        try (ResultWriter writer = ResultWriter.of(new PrintStream(latin, false, StandardCharsets.ISO_8859_1))) {
+            writer.write("Saint-Étienne ").write(2.5, 1);
+        }
+        assertEquals("Saint-Étienne 2.5", latin.toString(StandardCharsets.ISO_8859_1));
+        ByteArrayOutputStream wide = new ByteArrayOutputStream();
+        try (ResultWriter writer = ResultWriter.of(new PrintStream(wide, false, StandardCharsets.UTF_16))) {
+            writer.write("Saint-Étienne");
+        }
+        assertEquals("Saint-Étienne", wide.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testResultWriterReusesThreadBuffer() {
+        ByteArrayOutputStream first = new ByteArrayOutputStream();
+        ByteArrayOutputStream second = new ByteArrayOutputStream();
+        ResultWriter outer = ResultWriter.of(first);
+        try (ResultWriter inner = ResultWriter.of(second)) {
+            assertNotSame(outer, inner);
+            inner.write("inner");
+        }
+        outer.write("outer");
+        outer.close();
+        assertEquals("inner", second.toString(StandardCharsets.UTF_8));
+        assertEquals("outer", first.toString(StandardCharsets.UTF_8));
+        try (ResultWriter reused = ResultWriter.of(second)) {
+            assertSame(outer, reused);
+            reused.write('!');
+        }
+        assertEquals("inner!", second.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testDotAndCsvOutput() throws IOException {
+        Graph graph = new Graph();
+        graph.addVertex("Lyon");
+        graph.addVertex("Saint-Étienne, Châteaucreux");
+        graph.addEdge(0, 1, 0.75);
+        graph.addEdge(1, 0, 1.0 / 3);
+        Path dot = this.directory.resolve("network.dot");
+        graph.toDotFormat(this.directory.resolve("network").toString());
+        assertEquals(String.join(System.lineSeparator(), "digraph {",
+                "\"Lyon\" -> \"Saint-Étienne, Châteaucreux\" [w=0.750000]",
+                "\"Saint-Étienne, Châteaucreux\" -> \"Lyon\" [w=0.333333]",
+                "}", ""), Files.readString(dot));
+        graph.distancesFrom("lyon");
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        graph.printDistancesCsv(new PrintStream(bytes, true, StandardCharsets.UTF_8));
+        assertEquals(String.join(System.lineSeparator(), "station,distance,previous",
+                "Lyon,0.0,",
+                "\"Saint-Étienne, Châteaucreux\",0.75,Lyon", ""), bytes.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testQueryServerAnswersAndReloads() throws IOException {
+        Path network = this.directory.resolve("input.txt");
+        Files.copy(Path.of("input.txt"), network);
+        try (QueryServer server = new QueryServer(network)) {
+            assertEquals(List.of("OK 2.7 Lyon, Montpellier, Narbonne", "OK 2.7",
+                    "ERROR No such vertex with name Nowhere", "ERROR Unknown command HELLO", "BYE"),
+                    ask(server, "ROUTE Lyon, Narbonne", "dist lyon,narbonne", "DIST Lyon, Nowhere", "HELLO",
+                            "QUIT", "ROUTE Lyon, Paris"));
+            Graph before = server.getGraph();
+            Files.writeString(network, "Lyon\nNice\n\n0, 1, 4.5\n");
+            assertEquals(List.of("OK 2 1", "OK 4.5 Lyon, Nice", "NONE", "NONE"),
+                    ask(server, "RELOAD", "ROUTE Lyon, Nice", "ROUTE Nice, Lyon", "DIST Nice, Lyon"));
+            assertEquals(9, before.getCsr().vertexCount());
+            Files.delete(network);
+            assertTrue(ask(server, "RELOAD").getFirst().startsWith("ERROR"));
+            assertEquals(List.of("OK 4.5"), ask(server, "DIST Lyon, Nice"));
+        }
+    }
+
+    @Test
+    void testQueryServerOverSocket() throws Exception {
+        try (QueryServer server = new QueryServer(Path.of("input.txt"))) {
+            int port = server.start(0);
+            List<Thread> clients = new ArrayList<>();
+            List<String> answers = Collections.synchronizedList(new ArrayList<>());
+            for (int i = 0; i < 8; i++) {
+                clients.add(Thread.ofVirtual().start(() -> {
+                    try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port);
+                         BufferedReader reader = new BufferedReader(
+                                 new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8))) {
+                        socket.getOutputStream().write("DIST Paris, Narbonne\nQUIT\n".getBytes(StandardCharsets.UTF_8));
+                        answers.add(reader.readLine());
+                        answers.add(reader.readLine());
+                    } catch (IOException e) {
+                        throw new RuntimeException(e);
+                    }
+                }));
+            }
+            for (Thread client : clients) {
+                client.join();
+            }
+            assertEquals(16, answers.size());
+            assertEquals(8, answers.stream().filter("OK 4.25"::equals).count());
+            assertEquals(8, answers.stream().filter("BYE"::equals).count());
+        }
+    }
+
+    @Test
+    void testQueryServerAnswersBehindIdleConnections() throws Exception {
+        List<Socket> idle = new ArrayList<>();
+        try (QueryServer server = new QueryServer(Path.of("input.txt"))) {
+            int port = server.start(0);
+            for (int i = 0; i < Runtime.getRuntime().availableProcessors() + 2; i++) {
+                idle.add(new Socket(InetAddress.getLoopbackAddress(), port));
+            }
+            try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port);
+                 BufferedReader reader = new BufferedReader(
+                         new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8))) {
+                socket.setSoTimeout(5_000);
+                socket.getOutputStream().write("DIST Paris, Narbonne\n".getBytes(StandardCharsets.UTF_8));
+                assertEquals("OK 4.25", reader.readLine());
+            }
+            server.close();
+            for (Socket socket : idle) {
+                socket.setSoTimeout(5_000);
+                assertEquals(-1, socket.getInputStream().read());
+            }
+        } finally {
+            for (Socket socket : idle) {
+                socket.close();
+            }
+        }
+    }
+
+    @Test
+    void testQueryServerReloadsOnceFileSettles() throws Exception {
+        Path network = this.directory.resolve("input.txt");
+        Files.copy(Path.of("input.txt"), network);
+        try (QueryServer server = new QueryServer(network)) {
+            server.watch();
+            Graph before = server.getGraph();
+            Path staging = this.directory.resolve("input.tmp");
+            Files.writeString(staging, "Lyon\nNice\n\n0, 1, 4.5\n");
+            Files.move(staging, network, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            for (int i = 0; i < 100 && server.getGraph() == before; i++) {
+                Thread.sleep(50);
+            }
+            assertEquals(2, server.getGraph().getCsr().vertexCount());
+        }
+    }
+
+    @Test
+    void testQueryServerCountsFailedConnections() throws Exception {
+        try (QueryServer server = new QueryServer(Path.of("input.txt"))) {
+            QueryMetrics.reset();
+            QueryMetrics.setEnabled(true);
+            int port = server.start(0);
+            try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+                socket.getOutputStream().write("DIST Paris".getBytes(StandardCharsets.UTF_8));
+                socket.setSoLinger(true, 0);
+            }
+            for (int i = 0; i < 100 && QueryMetrics.snapshot().isEmpty(); i++) {
+                Thread.sleep(50);
+            }
+            assertEquals(List.of(QueryMetrics.Kind.SERVER_ERROR),
+                    QueryMetrics.snapshot().stream().map(QueryMetrics.Snapshot::kind).toList());
+        } finally {
+            QueryMetrics.setEnabled(false);
+            QueryMetrics.reset();
+        }
+    }
+
+    private static List<String> ask(QueryServer server, String... lines) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        String input = String.join("\n", lines) + "\n";
+        server.serve(new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)), output);
+        return output.toString(StandardCharsets.UTF_8).lines().toList();
+    }
+
+    @Test
+    void testQueryMetricsCountSearches() throws IOException {
+        Graph graph = new Graph();
+        graph.readFrom("input.txt");
+        QueryMetrics.reset();
+        QueryMetrics.setEnabled(true);
+        try (Recording recording = new Recording()) {
+            recording.enable("com.example.trains.Query");
+            recording.start();
+            graph.route("Lyon", "Narbonne");
+            graph.route("Lyon", "Narbonne");
+            graph.bidirectionalRoute("Lyon", "Narbonne");
+            graph.getCsr().shortestPaths(0);
+            recording.stop();
+            Path events = this.directory.resolve("events.jfr");
+            recording.dump(events);
+            assertEquals(4, RecordingFile.readAllEvents(events).size());
+        } finally {
+            QueryMetrics.setEnabled(false);
+        }
+        graph.route("Lyon", "Narbonne");
+        List<QueryMetrics.Snapshot> snapshots = QueryMetrics.snapshot();
+        assertEquals(List.of(QueryMetrics.Kind.SHORTEST_PATHS, QueryMetrics.Kind.ROUTE,
+                QueryMetrics.Kind.BIDIRECTIONAL), snapshots.stream().map(QueryMetrics.Snapshot::kind).toList());
+        QueryMetrics.Snapshot shortestPaths = snapshots.get(0);
+        assertEquals(1, shortestPaths.count());
+        assertEquals(9, shortestPaths.vertices());
+        assertEquals(22, shortestPaths.edges());
+        assertTrue(shortestPaths.heapPushes() >= 9);
+        QueryMetrics.Snapshot route = snapshots.get(1);
+        assertEquals(2, route.count());
+        assertEquals(2 * graph.route("Lyon", "Narbonne").orElseThrow().settled(), route.vertices());
+        assertTrue(route.p50() <= route.p99() && route.p99() <= route.max() && route.max() > 0);
+        QueryMetrics.reset();
+        assertTrue(QueryMetrics.snapshot().isEmpty());
+    }
+
+    @Test
+    void testLatencyHistogramBuckets() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long value = 1; value <= 1000; value++) {
+            histogram.record(value * 1000);
+        }
+        long[] counts = histogram.counts();
+        assertEquals(500_000, LatencyHistogram.percentile(counts, 50), 500_000 / 16.0);
+        assertEquals(990_000, LatencyHistogram.percentile(counts, 99), 990_000 / 16.0);
+        assertTrue(LatencyHistogram.percentile(counts, 100) >= 1_000_000);
+        for (long value : new long[] {0, 15, 16, 17, 31, 32, 1000, 123_456_789, Long.MAX_VALUE}) {
+            int index = LatencyHistogram.index(value);
+            assertTrue(LatencyHistogram.lowest(index) <= value);
+            assertTrue(index + 1 == counts.length || value < LatencyHistogram.lowest(index + 1));
+        }
+    }
+
+    @Test
+    void testTimetableEarliestArrival() {
+        Timetable timetable = Timetable.readFrom("timetable.txt");
+        int eight = Timetable.parseTime("08:00");
+        Timetable.Journey journey = timetable.earliestArrival("lyon", "Narbonne", eight).orElseThrow();
+        assertEquals("11:10", Timetable.formatTime(journey.arrival()));
+        assertEquals(List.of("TGV6103", "TER76501"), journey.legs().stream().map(Timetable.Leg::trip).toList());
+        assertEquals("Montpellier", journey.legs().get(0).to());
+        // Missing the 10:05 connection at Montpellier, the 09:04 through train arrives first.
+        int lyon = timetable.getStations().indexOf("Lyon");
+        int narbonne = timetable.getStations().indexOf("Narbonne");
+        journey = timetable.earliestArrival(lyon, narbonne, eight, 30 * 60).orElseThrow();
+        assertEquals("11:48", Timetable.formatTime(journey.arrival()));
+        assertEquals(0, journey.transfers());
+        assertEquals(Optional.empty(), timetable.earliestArrival("Narbonne", "Lyon", eight));
+        assertThrows(IllegalArgumentException.class, () -> timetable.earliestArrival("Lyon", "Nice", eight));
+        assertEquals(26 * 3600 + 5, Timetable.parseTime("26:00:05"));
+        assertEquals("26:00:05", Timetable.formatTime(26 * 3600 + 5));
+        assertThrows(IllegalArgumentException.class, () -> Timetable.parseTime("8:60"));
+    }
+
+    @Test
+    void testTimetableMatchesRelaxation() {
+        Random random = new Random(21);
+        int stations = 40;
+        int count = 2000;
+        int[] tripOf = new int[count];
+        int[] from = new int[count];
+        int[] to = new int[count];
+        int[] departures = new int[count];
+        int[] arrivals = new int[count];
+        for (int c = 0; c < count; c++) {
+            tripOf[c] = c;
+            from[c] = random.nextInt(stations);
+            to[c] = random.nextInt(stations);
+            departures[c] = random.nextInt(24 * 60) * 60;
+            arrivals[c] = departures[c] + random.nextInt(4) * 600;
+        }
+        String[] names = IntStream.range(0, stations).mapToObj(i -> "Station" + i).toArray(String[]::new);
+        String[] trips = IntStream.range(0, count).mapToObj(i -> "T" + i).toArray(String[]::new);
+        Timetable timetable = new Timetable(names, trips, tripOf, from, to, departures, arrivals);
+        for (int query = 0; query < 50; query++) {
+            int source = random.nextInt(stations);
+            int departure = random.nextInt(24 * 60) * 60;
+            int transfer = random.nextInt(3) * 300;
+            // Every trip has one connection, so each leg needs the transfer time at its arrival station.
+            int[] reached = new int[stations];
+            Arrays.fill(reached, Integer.MAX_VALUE);
+            reached[source] = departure;
+            for (boolean changed = true; changed; ) {
+                changed = false;
+                for (int c = 0; c < count; c++) {
+                    int ready = from[c] == source ? reached[from[c]]
+                            : reached[from[c]] == Integer.MAX_VALUE ? Integer.MAX_VALUE : reached[from[c]] + transfer;
+                    if (ready <= departures[c] && arrivals[c] < reached[to[c]]) {
+                        reached[to[c]] = arrivals[c];
+                        changed = true;
+                    }
+                }
+            }
+            for (int target = 0; target < stations; target++) {
+                Optional<Timetable.Journey> journey = timetable.earliestArrival(source, target, departure, transfer);
+                assertEquals(reached[target] == Integer.MAX_VALUE, journey.isEmpty());
+                if (journey.isPresent() && target != source) {
+                    assertEquals(reached[target], journey.get().arrival());
+                    List<Timetable.Leg> legs = journey.get().legs();
+                    assertEquals(names[source], legs.getFirst().from());
+                    assertEquals(names[target], legs.getLast().to());
+                    for (int i = 1; i < legs.size(); i++) {
+                        assertEquals(legs.get(i - 1).to(), legs.get(i).from());
+                        assertTrue(legs.get(i - 1).arrival() + transfer <= legs.get(i).departure());
+                    }
+                }
+            }
+        }
+    }
+
+    private static void assertEdge(CsrGraph csr, int edge, int source, int target, double cost) {
+        assertTrue(csr.firstEdge(source) <= edge && edge < csr.lastEdge(source));
+        assertEquals(target, csr.target(edge));
+        assertEquals(cost, csr.cost(edge));
+    }
+
+    private static void assertEnginesAgree(String filename) {
+        Graph linear = new Graph();
+        linear.readFrom(filename);
+        linear.setEngine(Graph.Engine.LINEAR_SCAN);
+        for (Graph.Engine engine : List.of(Graph.Engine.BINARY_HEAP, Graph.Engine.COMPRESSED)) {
+            Graph other = new Graph();
+            other.readFrom(filename);
+            other.setEngine(engine);
+            for (int source = 0; source < linear.getVertices().length; source++) {
+                linear.distancesFrom(linear.getVertices()[source]);
+                other.distancesFrom(other.getVertices()[source]);
+                for (int i = 0; i < linear.getVertices().length; i++) {
+                    Vertex expected = linear.getVertices()[i];
+                    Vertex actual = other.getVertices()[i];
+                    assertEquals(expected.getDistance(), actual.getDistance());
+                    assertEquals(indexOf(expected.getPrevious()), indexOf(actual.getPrevious()));
+                }
+            }
+        }
+    }
+
+    private static int indexOf(Vertex vertex) {
+        return vertex == null ? -1 : vertex.getIndex();
+    }
+
+    // Small integer costs produce many equal-length paths.
+    private Path writeRandomNetwork(int vertices, int edges, long seed) throws IOException {
+        Random random = new Random(seed);
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < vertices; i++) {
+            builder.append("Station").append(i).append('\n');
+        }
+        builder.append('\n');
+        for (int i = 0; i < edges; i++) {
+            builder.append(random.nextInt(vertices)).append(", ")
+                    .append(random.nextInt(vertices)).append(", ")
+                    .append(1 + random.nextInt(3)).append('\n');
+        }
+        Path file = this.directory.resolve("network.txt");
+        Files.writeString(file, builder);
+        return file;
+    }
+}
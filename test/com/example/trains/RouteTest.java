@@ -0,0 +1,337 @@
+package com.example.trains;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RouteTest {
+
+    @Test
+    void testRouteOnInput() {
+        Graph graph = new Graph();
+        graph.readFrom("input.txt");
+        Route route = graph.route("Lyon", "toulouse").orElseThrow();
+        assertEquals(List.of("Lyon", "Montpellier", "Narbonne", "Toulouse"), route.stations());
+        assertEquals(4.45, route.cost(), 1e-9);
+        Route bidirectional = graph.bidirectionalRoute("Lyon", "Toulouse").orElseThrow();
+        assertEquals(route.stations(), bidirectional.stations());
+        assertEquals(route.cost(), bidirectional.cost(), 1e-9);
+    }
+
+    @Test
+    void testRoutesMatchShortestPathTree() {
+        CsrGraph graph = randomGraph(400, 1600, 5L).getCsr();
+        for (int source = 0; source < graph.vertexCount(); source += 37) {
+            ShortestPathTree tree = graph.shortestPaths(source);
+            for (int target = 0; target < graph.vertexCount(); target += 13) {
+                assertRoute(graph, tree, target, graph.route(source, target));
+                assertRoute(graph, tree, target, graph.bidirectionalRoute(source, target));
+            }
+        }
+    }
+
+    @Test
+    void testRouteSettlesLessThanWholeGraph() {
+        Graph graph = randomGraph(2000, 8000, 9L);
+        CsrGraph csr = graph.getCsr();
+        int total = 0;
+        int settled = 0;
+        for (int target = 1; target < csr.vertexCount(); target += 97) {
+            Optional<Route> route = csr.bidirectionalRoute(0, target);
+            if (route.isPresent()) {
+                total += csr.vertexCount();
+                settled += route.get().settled();
+            }
+        }
+        assertTrue(settled < total);
+    }
+
+    @Test
+    void testAStarOnInputCoordinates() {
+        Graph graph = new Graph();
+        graph.readFrom("input.txt");
+        graph.readCoordinatesFrom("coordinates.txt");
+        Heuristic heuristic = new GreatCircleHeuristic(graph.getCoordinates(), 320);
+        CsrGraph csr = graph.getCsr();
+        for (int source = 0; source < csr.vertexCount(); source++) {
+            ShortestPathTree tree = csr.shortestPaths(source);
+            for (int target = 0; target < csr.vertexCount(); target++) {
+                assertRoute(csr, tree, target, csr.route(source, target, heuristic));
+            }
+        }
+    }
+
+    @Test
+    void testAStarIsExactAndSettlesFewerVertices() {
+        Graph graph = geometricGraph(3000, 4, 21L);
+        CsrGraph csr = graph.getCsr();
+        Heuristic heuristic = new GreatCircleHeuristic(graph.getCoordinates(), 300);
+        int plain = 0;
+        int guided = 0;
+        for (int source = 0; source < csr.vertexCount(); source += 301) {
+            ShortestPathTree tree = csr.shortestPaths(source);
+            for (int target = 7; target < csr.vertexCount(); target += 211) {
+                Optional<Route> route = csr.route(source, target, heuristic);
+                assertRoute(csr, tree, target, route);
+                plain += csr.route(source, target).map(Route::settled).orElse(0);
+                guided += route.map(Route::settled).orElse(0);
+            }
+        }
+        assertTrue(guided < plain);
+    }
+
+    @Test
+    void testLandmarksAreExactAndSurviveRoundTrip(@TempDir Path directory) throws IOException {
+        Graph graph = geometricGraph(1500, 3, 33L);
+        CsrGraph csr = graph.getCsr();
+        Landmarks landmarks = graph.computeLandmarks(8);
+        Path file = directory.resolve("landmarks.bin");
+        landmarks.writeTo(file);
+        Landmarks persisted = Landmarks.readFrom(file, csr);
+        assertArrayEquals(landmarks.landmarks(), persisted.landmarks());
+        for (int source = 0; source < csr.vertexCount(); source += 149) {
+            ShortestPathTree tree = csr.shortestPaths(source);
+            for (int target = 3; target < csr.vertexCount(); target += 101) {
+                assertEquals(landmarks.estimate(source, target), persisted.estimate(source, target));
+                assertTrue(landmarks.estimate(source, target) <= tree.distanceTo(target));
+                assertRoute(csr, tree, target, csr.route(source, target, persisted));
+            }
+        }
+    }
+
+    @Test
+    void testLandmarksAndHierarchySettleFewerVerticesThanDijkstra() {
+        Graph graph = geometricGraph(3000, 3, 1L);
+        CsrGraph csr = graph.getCsr();
+        Landmarks landmarks = graph.computeLandmarks(16);
+        ContractionHierarchy hierarchy = graph.contract();
+        Random random = new Random(2L);
+        int plain = 0;
+        int alt = 0;
+        int ch = 0;
+        for (int i = 0; i < 100; i++) {
+            int source = random.nextInt(csr.vertexCount());
+            int target = random.nextInt(csr.vertexCount());
+            Optional<Route> dijkstra = csr.route(source, target);
+            Optional<Route> guided = csr.route(source, target, landmarks);
+            Optional<Route> contracted = hierarchy.route(source, target);
+            assertEquals(dijkstra.isPresent(), guided.isPresent());
+            assertEquals(dijkstra.isPresent(), contracted.isPresent());
+            if (dijkstra.isPresent()) {
+                assertEquals(dijkstra.get().cost(), guided.get().cost(), 1e-9);
+                assertEquals(dijkstra.get().cost(), contracted.get().cost(), 1e-9);
+                plain += dijkstra.get().settled();
+                alt += guided.get().settled();
+                ch += contracted.get().settled();
+            }
+        }
+        assertTrue(plain > 0);
+        assertTrue(alt < plain);
+        assertTrue(ch < plain);
+    }
+
+    @Test
+    void testLandmarksCoverEveryComponent() {
+        Graph graph = new Graph();
+        for (int i = 0; i < 20; i++) {
+            graph.addVertex("S" + i);
+        }
+        for (int i = 0; i < 20; i++) {
+            int next = i < 10 ? (i + 1) % 10 : 10 + (i - 9) % 10;
+            graph.addEdge(i, next, 1);
+            graph.addEdge(next, i, 1);
+        }
+        CsrGraph csr = graph.getCsr();
+        Landmarks landmarks = graph.computeLandmarks(4);
+        assertEquals(4, Arrays.stream(landmarks.landmarks()).distinct().count());
+        assertTrue(Arrays.stream(landmarks.landmarks()).anyMatch(vertex -> vertex < 10));
+        assertTrue(Arrays.stream(landmarks.landmarks()).anyMatch(vertex -> vertex >= 10));
+        for (int source = 0; source < 20; source++) {
+            ShortestPathTree tree = csr.shortestPaths(source);
+            for (int target = 0; target < 20; target++) {
+                assertRoute(csr, tree, target, csr.route(source, target, landmarks));
+            }
+        }
+        assertEquals(5, landmarks.estimate(10, 15), 1e-6);
+    }
+
+    @Test
+    void testContractionHierarchyOnInput() {
+        Graph graph = new Graph();
+        graph.readFrom("input.txt");
+        ContractionHierarchy hierarchy = graph.contract();
+        CsrGraph csr = graph.getCsr();
+        for (int source = 0; source < csr.vertexCount(); source++) {
+            ShortestPathTree tree = csr.shortestPaths(source);
+            for (int target = 0; target < csr.vertexCount(); target++) {
+                assertRoute(csr, tree, target, hierarchy.route(source, target));
+            }
+        }
+        assertEquals(List.of("Lyon", "Montpellier", "Narbonne", "Toulouse"),
+                graph.route("Lyon", "Toulouse", hierarchy).orElseThrow().stations());
+    }
+
+    @Test
+    void testContractionHierarchyIsExactAndSurvivesRoundTrip(@TempDir Path directory) throws IOException {
+        for (Graph graph : List.of(randomGraph(600, 2400, 13L), geometricGraph(1500, 3, 17L))) {
+            CsrGraph csr = graph.getCsr();
+            ContractionHierarchy built = graph.contract();
+            Path file = directory.resolve("hierarchy.bin");
+            built.writeTo(file);
+            ContractionHierarchy hierarchy = ContractionHierarchy.readFrom(file, csr);
+            assertEquals(built.shortcutCount(), hierarchy.shortcutCount());
+            for (int source = 0; source < csr.vertexCount(); source += 41) {
+                ShortestPathTree tree = csr.shortestPaths(source);
+                for (int target = 0; target < csr.vertexCount(); target += 7) {
+                    assertRoute(csr, tree, target, hierarchy.route(source, target));
+                }
+            }
+        }
+    }
+
+    @Test
+    void testCellOverlayIsExact() {
+        Graph input = new Graph();
+        input.readFrom("input.txt");
+        List<Graph> graphs = List.of(input, randomGraph(600, 2400, 19L), geometricGraph(1500, 3, 23L));
+        for (Graph graph : graphs) {
+            CsrGraph csr = graph.getCsr();
+            for (int[] maxCellSizes : new int[][] {{1}, {64}, {3, 16, 200}}) {
+                CellOverlay overlay = graph.partition(maxCellSizes);
+                for (int level = 1; level <= overlay.levelCount(); level++) {
+                    int[] sizes = new int[overlay.cellCount(level)];
+                    int[] parents = new int[level > 1 ? overlay.cellCount(level - 1) : 0];
+                    Arrays.fill(parents, -1);
+                    for (int vertex = 0; vertex < csr.vertexCount(); vertex++) {
+                        int cell = overlay.cell(level, vertex);
+                        assertTrue(++sizes[cell] <= maxCellSizes[level - 1]);
+                        if (level > 1) {
+                            int lower = overlay.cell(level - 1, vertex);
+                            assertTrue(parents[lower] < 0 || parents[lower] == cell);
+                            parents[lower] = cell;
+                        }
+                    }
+                }
+                for (int source = 0; source < csr.vertexCount(); source += 97) {
+                    ShortestPathTree tree = csr.shortestPaths(source);
+                    for (int target = 0; target < csr.vertexCount(); target += 7) {
+                        assertRoute(csr, tree, target, overlay.route(source, target));
+                    }
+                }
+            }
+        }
+        CellOverlay overlay = input.partition(2, 4);
+        assertEquals(List.of("Lyon", "Montpellier", "Narbonne", "Toulouse"),
+                input.route("Lyon", "Toulouse", overlay).orElseThrow().stations());
+    }
+
+    @Test
+    void testCellOverlayRecomputesChangedCells() {
+        Graph graph = geometricGraph(1500, 3, 29L);
+        CsrGraph csr = graph.getCsr();
+        CellOverlay overlay = graph.partition(20, 200);
+        assertTrue(overlay.cellCount(2) > 1 && overlay.boundaryCount(2) < overlay.boundaryCount(1));
+        assertTrue(overlay.boundaryCount(1) < csr.vertexCount());
+        Random random = new Random(31L);
+        for (int i = 0; i < 20; i++) {
+            int vertex = random.nextInt(csr.vertexCount());
+            for (int edge = csr.firstEdge(vertex); edge < csr.lastEdge(vertex); edge++) {
+                graph.setCost(edge, random.nextBoolean() ? csr.cost(edge) / 10 : csr.cost(edge) * 10);
+            }
+            overlay.recompute(vertex);
+        }
+        for (int source = 0; source < csr.vertexCount(); source += 53) {
+            ShortestPathTree tree = csr.shortestPaths(source);
+            for (int target = 0; target < csr.vertexCount(); target += 3) {
+                assertRoute(csr, tree, target, overlay.route(source, target));
+            }
+        }
+    }
+
+    /**
+     * Random stations over France, each linked to its nearest neighbours with costs no shorter than
+     * the great-circle distance at 300 km/h.
+     */
+    static Graph geometricGraph(int vertices, int degree, long seed) {
+        Random random = new Random(seed);
+        Graph graph = new Graph();
+        Coordinates coordinates = new Coordinates(vertices);
+        for (int i = 0; i < vertices; i++) {
+            graph.addVertex("S" + i);
+            coordinates.set(i, 43 + 6 * random.nextDouble(), -1 + 8 * random.nextDouble());
+        }
+        double[] distances = new double[vertices];
+        for (int i = 0; i < vertices; i++) {
+            for (int j = 0; j < vertices; j++) {
+                distances[j] = i == j ? Double.POSITIVE_INFINITY : GreatCircleHeuristic.distanceKm(coordinates, i, j);
+            }
+            for (int k = 0; k < degree; k++) {
+                int nearest = 0;
+                for (int j = 1; j < vertices; j++) {
+                    if (distances[j] < distances[nearest]) {
+                        nearest = j;
+                    }
+                }
+                double hours = distances[nearest] / 300;
+                graph.addEdge(i, nearest, hours * (1 + random.nextDouble()));
+                graph.addEdge(nearest, i, hours * (1 + random.nextDouble()));
+                distances[nearest] = Double.POSITIVE_INFINITY;
+            }
+        }
+        graph.freeze();
+        graph.setCoordinates(coordinates);
+        return graph;
+    }
+
+    static void assertRoute(CsrGraph graph, ShortestPathTree tree, int target, Optional<Route> route) {
+        if (!tree.isReachable(target)) {
+            assertFalse(route.isPresent());
+            return;
+        }
+        Route actual = route.orElseThrow();
+        assertEquals(tree.distanceTo(target), actual.cost(), 1e-9);
+        assertEquals(graph.name(tree.source()), actual.stations().getFirst());
+        assertEquals(graph.name(target), actual.stations().getLast());
+        assertEquals(tree.distanceTo(target), pathCost(graph, actual.stations()), 1e-9);
+    }
+
+    private static double pathCost(CsrGraph graph, List<String> stations) {
+        List<String> names = IntStream.range(0, graph.vertexCount()).mapToObj(graph::name).toList();
+        double cost = 0;
+        for (int i = 1; i < stations.size(); i++) {
+            int from = names.indexOf(stations.get(i - 1));
+            int to = names.indexOf(stations.get(i));
+            double best = Double.POSITIVE_INFINITY;
+            for (int edge = graph.firstEdge(from); edge < graph.lastEdge(from); edge++) {
+                if (graph.target(edge) == to) {
+                    best = Math.min(best, graph.cost(edge));
+                }
+            }
+            cost += best;
+        }
+        return cost;
+    }
+
+    static Graph randomGraph(int vertices, int edges, long seed) {
+        Random random = new Random(seed);
+        Graph graph = new Graph();
+        for (int i = 0; i < vertices; i++) {
+            graph.addVertex("S" + i);
+        }
+        for (int i = 0; i < edges; i++) {
+            graph.addEdge(random.nextInt(vertices), random.nextInt(vertices), random.nextInt(100) / 10.0);
+        }
+        return graph;
+    }
+}